@@ -0,0 +1,34 @@
+package com.lazan.tinyioc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.lazan.tinyioc.ServiceRegistry;
+import com.lazan.tinyioc.ServiceRegistryBuilder;
+import com.lazan.tinyioc.internal.AnnotatedServiceModule;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnnotatedModuleBenchmark {
+	@Benchmark
+	public ServiceRegistry buildRegistry() {
+		ServiceRegistryBuilder builder = new ServiceRegistryBuilder();
+		for (Class<?> moduleType : AnnotatedModules.MODULE_TYPES) {
+			builder.withModule(new AnnotatedServiceModule(moduleType));
+		}
+		return builder.build();
+	}
+
+	@Benchmark
+	public Object buildRegistryAndRealize() {
+		ServiceRegistry registry = buildRegistry();
+		return registry.getService("s4");
+	}
+}
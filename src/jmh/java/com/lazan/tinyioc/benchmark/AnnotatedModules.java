@@ -0,0 +1,104 @@
+package com.lazan.tinyioc.benchmark;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Named;
+
+import com.lazan.tinyioc.MappedConfiguration;
+import com.lazan.tinyioc.OrderedConfiguration;
+import com.lazan.tinyioc.ServiceBinder;
+import com.lazan.tinyioc.annotations.Bind;
+import com.lazan.tinyioc.annotations.Contribute;
+import com.lazan.tinyioc.annotations.Decorate;
+import com.lazan.tinyioc.annotations.Service;
+
+import com.lazan.tinyioc.benchmark.BenchmarkServices.Leaf;
+import com.lazan.tinyioc.benchmark.BenchmarkServices.Middle;
+import com.lazan.tinyioc.benchmark.BenchmarkServices.Root;
+
+public class AnnotatedModules {
+	public static class ServicesModule {
+		@Bind
+		public static void bind(ServiceBinder binder) {
+			binder.bind(Leaf.class);
+			binder.bind(String.class, "value").withServiceId("string0");
+		}
+
+		@Service
+		public static Middle middle(Leaf leaf) {
+			return new Middle(leaf);
+		}
+
+		@Service
+		public static Root root(Middle middle) {
+			return new Root(middle);
+		}
+
+		@Service(serviceId="s1")
+		public static String s1(@Named("string0") String value) {
+			return value + 1;
+		}
+
+		@Service(serviceId="s2")
+		public static String s2(@Named("s1") String value) {
+			return value + 2;
+		}
+
+		@Service(serviceId="s3")
+		public static String s3(@Named("s2") String value) {
+			return value + 3;
+		}
+
+		@Service(serviceId="s4")
+		public static String s4(@Named("s3") String value) {
+			return value + 4;
+		}
+	}
+
+	public static class DecoratorModule {
+		@Decorate(decoratorId="d1", serviceId="s1")
+		public static String d1(@Named("s1") String delegate) {
+			return delegate;
+		}
+
+		@Decorate(decoratorId="d2", serviceId="s2")
+		public static String d2(@Named("s2") String delegate) {
+			return delegate;
+		}
+
+		@Decorate(decoratorId="d3", serviceId="s3", after="d2")
+		public static String d3(@Named("s3") String delegate) {
+			return delegate;
+		}
+	}
+
+	public static class ContributionModule {
+		@Service(serviceId="list")
+		public static List<String> list(List<String> values) {
+			return values;
+		}
+
+		@Service(serviceId="map")
+		public static Map<String, String> map(Map<String, String> values) {
+			return values;
+		}
+
+		@Contribute(serviceId="list")
+		public static void contributeList(OrderedConfiguration<String> configuration) {
+			configuration.add("a", "a");
+		}
+
+		@Contribute(serviceId="list")
+		public static void contributeList2(OrderedConfiguration<String> configuration) {
+			configuration.add("b", "b").before("a");
+		}
+
+		@Contribute(serviceId="map")
+		public static void contributeMap(MappedConfiguration<String, String> configuration) {
+			configuration.add("a", "a", "a");
+		}
+	}
+
+	public static final Class<?>[] MODULE_TYPES = { ServicesModule.class, DecoratorModule.class, ContributionModule.class };
+}
@@ -0,0 +1,103 @@
+package com.lazan.tinyioc.benchmark;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.lazan.tinyioc.Autobuilder;
+import com.lazan.tinyioc.ServiceRegistry;
+import com.lazan.tinyioc.ServiceRegistryBuilder;
+import com.lazan.tinyioc.benchmark.BenchmarkServices.Root;
+import com.lazan.tinyioc.benchmark.BenchmarkServices.Transient;
+
+/**
+ * Compares Autobuilder against reflectiveAutobuild, a copy of the uncached lookup which
+ * resolved the constructor, parameter annotations and @Inject fields on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AutobuildBenchmark {
+	private ServiceRegistry registry;
+	private Autobuilder autobuilder;
+
+	@Setup
+	public void setup() {
+		registry = new ServiceRegistryBuilder()
+				.withModule(BenchmarkServices.graphModule(1))
+				.build();
+		autobuilder = registry.getService(Autobuilder.class);
+		registry.getService(Root.class);
+	}
+
+	@Benchmark
+	public Transient autobuild() {
+		return autobuilder.autobuild(registry, Transient.class);
+	}
+
+	@Benchmark
+	public Root autobuildFieldsAndConstructor() {
+		return autobuilder.autobuild(registry, Root.class);
+	}
+
+	@Benchmark
+	public Transient reflectiveAutobuild() throws Exception {
+		return reflectiveAutobuild(Transient.class);
+	}
+
+	@Benchmark
+	public Root reflectiveAutobuildFieldsAndConstructor() throws Exception {
+		return reflectiveAutobuild(Root.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T reflectiveAutobuild(Class<T> type) throws Exception {
+		Constructor<T> constructor = null;
+		for (Constructor<?> candidate : type.getConstructors()) {
+			if (constructor == null || candidate.getAnnotation(Inject.class) != null) {
+				constructor = (Constructor<T>) candidate;
+			}
+		}
+		Object[] params = new Object[constructor.getParameterTypes().length];
+		for (int i = 0; i < params.length; ++i) {
+			Class<?> paramType = constructor.getParameterTypes()[i];
+			Named named = findNamed(constructor.getParameterAnnotations()[i]);
+			params[i] = named == null ? registry.getService(paramType) : registry.getService(named.value(), paramType);
+		}
+		T service = constructor.newInstance(params);
+		Class<?> currentType = type;
+		do {
+			for (Field field : currentType.getDeclaredFields()) {
+				if (field.getAnnotation(Inject.class) != null) {
+					Named named = field.getAnnotation(Named.class);
+					Object value = named == null ? registry.getService(field.getType()) : registry.getService(named.value(), field.getType());
+					field.setAccessible(true);
+					field.set(service, value);
+				}
+			}
+			currentType = currentType.getSuperclass();
+		} while (currentType != null);
+		return service;
+	}
+
+	private Named findNamed(Annotation[] annotations) {
+		for (Annotation annotation : annotations) {
+			if (annotation instanceof Named) {
+				return (Named) annotation;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,47 @@
+package com.lazan.tinyioc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.lazan.tinyioc.ServiceRegistry;
+import com.lazan.tinyioc.ServiceRegistryBuilder;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AutobuildRealizationBenchmark {
+	private static final int SERVICE_COUNT = 1000;
+
+	private String[] autobuildIds;
+	private ServiceRegistry autobuildRegistry;
+
+	@Setup(Level.Trial)
+	public void setupIds() {
+		autobuildIds = BenchmarkServices.serviceIds("autobuild", SERVICE_COUNT);
+	}
+
+	@Setup(Level.Invocation)
+	public void setupRegistry() {
+		autobuildRegistry = new ServiceRegistryBuilder()
+				.withModule(BenchmarkServices.autobuildModule(autobuildIds))
+				.build();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SERVICE_COUNT)
+	public void realizeAutobuild(Blackhole blackhole) {
+		for (String serviceId : autobuildIds) {
+			blackhole.consume(autobuildRegistry.getService(serviceId));
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package com.lazan.tinyioc.benchmark;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.lazan.tinyioc.ServiceBinder;
+import com.lazan.tinyioc.ServiceBuilder;
+import com.lazan.tinyioc.ServiceBuilderContext;
+import com.lazan.tinyioc.ServiceDecorator;
+import com.lazan.tinyioc.ServiceModule;
+
+public class BenchmarkServices {
+	public static class Leaf {}
+
+	public static class Middle {
+		private final Leaf leaf;
+
+		public Middle(Leaf leaf) {
+			this.leaf = leaf;
+		}
+
+		public Leaf getLeaf() {
+			return leaf;
+		}
+	}
+
+	public static class Root {
+		private final Middle middle;
+		@Inject private Leaf leaf;
+		@Inject @Named("string0") private String name;
+
+		public Root(Middle middle) {
+			this.middle = middle;
+		}
+
+		public Middle getMiddle() {
+			return middle;
+		}
+	}
+
+	public static class Transient {
+		private final Root root;
+		@Inject private Middle middle;
+		@Inject private Leaf leaf;
+
+		public Transient(Root root) {
+			this.root = root;
+		}
+
+		public Root getRoot() {
+			return root;
+		}
+	}
+
+	public static class StringDecorator implements ServiceDecorator<String> {
+		@Override
+		public String decorate(ServiceBuilderContext context, String delegate) {
+			return delegate;
+		}
+	}
+
+	public static ServiceModule graphModule(final int stringCount) {
+		return new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Leaf.class);
+				binder.bind(Middle.class);
+				binder.bind(Root.class);
+				for (int i = 0; i < stringCount; ++i) {
+					binder.bind(String.class, "value" + i).withServiceId("string" + i);
+				}
+			}
+		};
+	}
+
+	public static ServiceModule constantModule(final String[] serviceIds) {
+		return new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				for (String serviceId : serviceIds) {
+					binder.bind(String.class, serviceId).withServiceId(serviceId);
+				}
+			}
+		};
+	}
+
+	public static ServiceModule autobuildModule(final String[] serviceIds) {
+		return new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Leaf.class);
+				for (String serviceId : serviceIds) {
+					binder.bind(Middle.class).withServiceId(serviceId);
+				}
+			}
+		};
+	}
+
+	public static ServiceModule decoratedModule(final String[] serviceIds, final int decoratorCount) {
+		return new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				ServiceDecorator<String> decorator = new StringDecorator();
+				for (String serviceId : serviceIds) {
+					binder.bind(String.class, serviceId).withServiceId(serviceId);
+					for (int i = 0; i < decoratorCount; ++i) {
+						binder.decorate(String.class, "decorator" + i, decorator).withServiceId(serviceId);
+					}
+				}
+			}
+		};
+	}
+
+	public static ServiceModule chainModule(final String[] serviceIds) {
+		return new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				for (int i = 0; i < serviceIds.length; ++i) {
+					final String dependencyId = i == 0 ? null : serviceIds[i - 1];
+					binder.bind(Leaf.class, new ServiceBuilder<Leaf>() {
+						@Override
+						public Leaf build(ServiceBuilderContext context) {
+							if (dependencyId != null) {
+								context.getServiceRegistry().getService(dependencyId);
+							}
+							return new Leaf();
+						}
+					}).withServiceId(serviceIds[i]);
+				}
+			}
+		};
+	}
+
+	public static String[] serviceIds(String prefix, int count) {
+		String[] serviceIds = new String[count];
+		for (int i = 0; i < count; ++i) {
+			serviceIds[i] = prefix + i;
+		}
+		return serviceIds;
+	}
+}
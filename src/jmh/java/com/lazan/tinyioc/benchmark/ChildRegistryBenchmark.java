@@ -0,0 +1,49 @@
+package com.lazan.tinyioc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.lazan.tinyioc.ServiceModule;
+import com.lazan.tinyioc.ServiceRegistry;
+import com.lazan.tinyioc.ServiceRegistryBuilder;
+import com.lazan.tinyioc.benchmark.BenchmarkServices.Root;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChildRegistryBenchmark {
+	@Param({ "100", "5000" })
+	private int parentBindingCount;
+
+	private ServiceModule parentModule;
+	private ServiceModule tenantModule;
+	private ServiceRegistry parent;
+
+	@Setup
+	public void setup() {
+		parentModule = BenchmarkServices.graphModule(parentBindingCount);
+		tenantModule = BenchmarkServices.constantModule(BenchmarkServices.serviceIds("tenant", 3));
+		parent = new ServiceRegistryBuilder().withModule(parentModule).build();
+		parent.getService(Root.class);
+	}
+
+	@Benchmark
+	public Object fullRegistry() {
+		ServiceRegistry registry = new ServiceRegistryBuilder().withModules(parentModule, tenantModule).build();
+		return registry.getService(Root.class);
+	}
+
+	@Benchmark
+	public Object childRegistry() {
+		ServiceRegistry child = parent.createChild(tenantModule);
+		return child.getService(Root.class);
+	}
+}
@@ -0,0 +1,50 @@
+package com.lazan.tinyioc.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.lazan.tinyioc.Conditions;
+import com.lazan.tinyioc.ServiceBinder;
+import com.lazan.tinyioc.ServiceModule;
+import com.lazan.tinyioc.ServiceRegistry;
+import com.lazan.tinyioc.ServiceRegistryBuilder;
+import com.lazan.tinyioc.benchmark.BenchmarkServices.StringDecorator;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConditionalBindingBenchmark {
+	@Param({ "full", "slim" })
+	private String profile;
+
+	private ServiceModule module;
+
+	@Setup
+	public void setup() {
+		final String[] serviceIds = BenchmarkServices.serviceIds("feature", 1000);
+		module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Runnable.class, new Thread()).withServiceId("core");
+				for (String serviceId : serviceIds) {
+					binder.bind(String.class, serviceId).withServiceId(serviceId).when(Conditions.onProperty("profile", "full", false));
+					binder.decorate(String.class, "d", new StringDecorator()).withServiceId(serviceId);
+				}
+			}
+		};
+	}
+
+	@Benchmark
+	public ServiceRegistry build() {
+		return new ServiceRegistryBuilder().withModule(module).withProperties(Collections.singletonMap("profile", profile)).build();
+	}
+}
@@ -0,0 +1,44 @@
+package com.lazan.tinyioc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.lazan.tinyioc.ServiceRegistry;
+import com.lazan.tinyioc.ServiceRegistryBuilder;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DeepChainBenchmark {
+	@Param({ "10", "40", "200" })
+	private int depth;
+
+	private String[] serviceIds;
+	private ServiceRegistry registry;
+
+	@Setup(Level.Trial)
+	public void setupIds() {
+		serviceIds = BenchmarkServices.serviceIds("chain", depth);
+	}
+
+	@Setup(Level.Invocation)
+	public void setupRegistry() {
+		registry = new ServiceRegistryBuilder()
+				.withModule(BenchmarkServices.chainModule(serviceIds))
+				.build();
+	}
+
+	@Benchmark
+	public Object realizeChain() {
+		return registry.getService(serviceIds[depth - 1]);
+	}
+}
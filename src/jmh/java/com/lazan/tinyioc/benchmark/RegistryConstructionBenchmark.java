@@ -0,0 +1,39 @@
+package com.lazan.tinyioc.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.lazan.tinyioc.ServiceModule;
+import com.lazan.tinyioc.ServiceRegistry;
+import com.lazan.tinyioc.internal.ServiceRegistryImpl;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RegistryConstructionBenchmark {
+	@Param({ "10", "1000", "50000" })
+	private int bindingCount;
+
+	private List<ServiceModule> modules;
+
+	@Setup
+	public void setup() {
+		String[] serviceIds = BenchmarkServices.serviceIds("service", bindingCount);
+		modules = Collections.singletonList(BenchmarkServices.constantModule(serviceIds));
+	}
+
+	@Benchmark
+	public ServiceRegistry construct() {
+		return new ServiceRegistryImpl(modules);
+	}
+}
@@ -0,0 +1,88 @@
+package com.lazan.tinyioc.benchmark;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.lazan.tinyioc.ServiceHandle;
+import com.lazan.tinyioc.ServiceRegistry;
+import com.lazan.tinyioc.ServiceRegistryBuilder;
+import com.lazan.tinyioc.benchmark.BenchmarkServices.Root;
+import com.lazan.tinyioc.benchmark.BenchmarkServices.Transient;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RegistryLookupBenchmark {
+	@Param({ "10" })
+	private int stringCount;
+
+	private ServiceRegistry registry;
+	private ServiceHandle<Root> rootByType;
+	private ServiceHandle<Root> rootByIdAndType;
+
+	@Setup
+	public void setup() {
+		registry = new ServiceRegistryBuilder()
+				.withModule(BenchmarkServices.graphModule(stringCount))
+				.build();
+		registry.getService(Root.class);
+		registry.getServices(String.class);
+		rootByType = registry.handle(Root.class);
+		rootByIdAndType = registry.handle("root", Root.class);
+	}
+
+	@Benchmark
+	public Root getServiceByType() {
+		return registry.getService(Root.class);
+	}
+
+	@Benchmark
+	public Object getServiceById() {
+		return registry.getService("root");
+	}
+
+	@Benchmark
+	public Root getServiceByIdAndType() {
+		return registry.getService("root", Root.class);
+	}
+
+	@Benchmark
+	public Root handleByType() {
+		return rootByType.get();
+	}
+
+	@Benchmark
+	public Root handleByIdAndType() {
+		return rootByIdAndType.get();
+	}
+
+	@Benchmark
+	public Optional<Root> findServiceByType() {
+		return registry.findService(Root.class);
+	}
+
+	@Benchmark
+	public Optional<Thread> findMissingService() {
+		return registry.findService(Thread.class);
+	}
+
+	@Benchmark
+	public Map<String, String> getServices() {
+		return registry.getServices(String.class);
+	}
+
+	@Benchmark
+	public Transient autobuild() {
+		return registry.autobuild(Transient.class);
+	}
+}
@@ -0,0 +1,48 @@
+package com.lazan.tinyioc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.lazan.tinyioc.ServiceRegistry;
+import com.lazan.tinyioc.ServiceRegistryBuilder;
+import com.lazan.tinyioc.ServiceRegistryTemplate;
+import com.lazan.tinyioc.internal.AnnotatedServiceModule;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RegistryTemplateBenchmark {
+	@Param({ "10", "1000" })
+	private int bindingCount;
+
+	private ServiceRegistryBuilder builder;
+	private ServiceRegistryTemplate template;
+
+	@Setup
+	public void setup() {
+		String[] serviceIds = BenchmarkServices.serviceIds("service", bindingCount);
+		builder = new ServiceRegistryBuilder().withModule(BenchmarkServices.constantModule(serviceIds));
+		for (Class<?> moduleType : AnnotatedModules.MODULE_TYPES) {
+			builder.withModule(new AnnotatedServiceModule(moduleType));
+		}
+		template = builder.compile();
+	}
+
+	@Benchmark
+	public ServiceRegistry build() {
+		return builder.build();
+	}
+
+	@Benchmark
+	public ServiceRegistry newRegistry() {
+		return template.newRegistry();
+	}
+}
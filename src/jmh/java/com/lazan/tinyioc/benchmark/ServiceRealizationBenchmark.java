@@ -0,0 +1,51 @@
+package com.lazan.tinyioc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.lazan.tinyioc.ServiceRegistry;
+import com.lazan.tinyioc.ServiceRegistryBuilder;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ServiceRealizationBenchmark {
+	private static final int SERVICE_COUNT = 1000;
+
+	@Param({ "0", "4", "16" })
+	private int decoratorCount;
+
+	private String[] constantIds;
+	private ServiceRegistry constantRegistry;
+
+	@Setup(Level.Trial)
+	public void setupIds() {
+		constantIds = BenchmarkServices.serviceIds("constant", SERVICE_COUNT);
+	}
+
+	@Setup(Level.Invocation)
+	public void setupRegistry() {
+		constantRegistry = new ServiceRegistryBuilder()
+				.withModule(BenchmarkServices.decoratedModule(constantIds, decoratorCount))
+				.build();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SERVICE_COUNT)
+	public void realizeDecorated(Blackhole blackhole) {
+		for (String serviceId : constantIds) {
+			blackhole.consume(constantRegistry.getService(serviceId));
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.lazan.tinyioc;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import com.lazan.tinyioc.internal.AotHints;
+
+public class AotHintsWriter {
+	public static final String REFLECT_CONFIG = "reflect-config.json";
+	public static final String CLASS_LIST = "classlist";
+	
+	private final AotHints hints;
+	
+	public AotHintsWriter(ServiceRegistryBuilder builder) {
+		this(builder.getModules());
+	}
+	
+	public AotHintsWriter(Iterable<ServiceModule> modules) {
+		super();
+		this.hints = new AotHints(modules);
+	}
+	
+	public AotHintsWriter(Class<?>... moduleTypes) {
+		this(new ServiceRegistryBuilder().withModuleTypes(moduleTypes));
+	}
+	
+	public void writeReflectConfig(Appendable out) throws IOException {
+		hints.writeReflectConfig(out);
+	}
+	
+	public void writeClassList(Appendable out) throws IOException {
+		hints.writeClassList(out);
+	}
+	
+	public void write(File directory) throws IOException {
+		Files.createDirectories(directory.toPath());
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(new File(directory, REFLECT_CONFIG)), StandardCharsets.UTF_8)) {
+			writeReflectConfig(out);
+		}
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(new File(directory, CLASS_LIST)), StandardCharsets.UTF_8)) {
+			writeClassList(out);
+		}
+	}
+	
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: AotHintsWriter <outputDirectory> <moduleType>...");
+			System.exit(1);
+		}
+		Class<?>[] moduleTypes = new Class<?>[args.length - 1];
+		for (int i = 1; i < args.length; ++i) {
+			moduleTypes[i - 1] = Class.forName(args[i], false, Thread.currentThread().getContextClassLoader());
+		}
+		new AotHintsWriter(moduleTypes).write(new File(args[0]));
+	}
+}
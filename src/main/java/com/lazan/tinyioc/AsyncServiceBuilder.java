@@ -0,0 +1,7 @@
+package com.lazan.tinyioc;
+
+import java.util.concurrent.CompletionStage;
+
+public interface AsyncServiceBuilder<T> {
+	CompletionStage<T> build(ServiceBuilderContext context);
+}
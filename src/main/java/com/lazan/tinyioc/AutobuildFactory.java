@@ -0,0 +1,5 @@
+package com.lazan.tinyioc;
+
+public interface AutobuildFactory<T> {
+	T create(ServiceRegistry registry, ServiceBuilderContext context);
+}
@@ -0,0 +1,5 @@
+package com.lazan.tinyioc;
+
+public interface Condition {
+	boolean matches(ConditionContext context);
+}
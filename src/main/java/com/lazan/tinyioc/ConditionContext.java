@@ -0,0 +1,8 @@
+package com.lazan.tinyioc;
+
+public interface ConditionContext {
+	String getProperty(String name);
+	
+	boolean containsService(String serviceId);
+	boolean containsService(Class<?> serviceType);
+}
@@ -0,0 +1,31 @@
+package com.lazan.tinyioc;
+
+public class Conditions {
+	public static Condition onProperty(final String name, final String havingValue, final boolean matchIfMissing) {
+		return new Condition() {
+			@Override
+			public boolean matches(ConditionContext context) {
+				String value = context.getProperty(name);
+				return value == null ? matchIfMissing : value.equals(havingValue);
+			}
+		};
+	}
+	
+	public static Condition onMissingService(final Class<?> serviceType) {
+		return new Condition() {
+			@Override
+			public boolean matches(ConditionContext context) {
+				return !context.containsService(serviceType);
+			}
+		};
+	}
+	
+	public static Condition onMissingService(final String serviceId) {
+		return new Condition() {
+			@Override
+			public boolean matches(ConditionContext context) {
+				return !context.containsService(serviceId);
+			}
+		};
+	}
+}
@@ -0,0 +1,13 @@
+package com.lazan.tinyioc;
+
+import java.util.List;
+import java.util.Set;
+
+public interface DependencyGraph {
+	Set<String> getServiceIds();
+	Set<String> getDependencies(String serviceId);
+	boolean isComplete(String serviceId);
+	List<String> getProblems();
+	void validate();
+	String toDot();
+}
@@ -0,0 +1,7 @@
+package com.lazan.tinyioc;
+
+import java.util.concurrent.ExecutorService;
+
+public interface ExecutorDefinition {
+	ExecutorService createExecutor(String name);
+}
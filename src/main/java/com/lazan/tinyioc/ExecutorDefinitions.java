@@ -0,0 +1,64 @@
+package com.lazan.tinyioc;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.lazan.tinyioc.internal.NamedExecutorBuilder;
+import com.lazan.tinyioc.internal.NamedThreadFactory;
+import com.lazan.tinyioc.internal.ThreadPerTaskExecutor;
+
+public final class ExecutorDefinitions {
+	private ExecutorDefinitions() {}
+	
+	public static ServiceBinderOptions bind(ServiceBinder binder, final String name, final ExecutorDefinition definition) {
+		binder.contribute(ExecutorSource.class, new MappedContributor<String, ExecutorDefinition>() {
+			@Override
+			public void contribute(ServiceBuilderContext context, MappedConfiguration<String, ExecutorDefinition> configuration) {
+				configuration.add(name, name, definition);
+			}
+		});
+		return binder.bind(ExecutorService.class, new NamedExecutorBuilder(name)).withServiceId(name);
+	}
+	
+	public static ExecutorDefinition fixed(final int threads, final int queueCapacity) {
+		return new ExecutorDefinition() {
+			@Override
+			public ExecutorService createExecutor(String name) {
+				return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, 
+						new ArrayBlockingQueue<Runnable>(queueCapacity), new NamedThreadFactory(name));
+			}
+		};
+	}
+	
+	public static ExecutorDefinition forkJoin(final int parallelism) {
+		return new ExecutorDefinition() {
+			@Override
+			public ExecutorService createExecutor(final String name) {
+				final AtomicInteger threadCount = new AtomicInteger();
+				ForkJoinPool.ForkJoinWorkerThreadFactory factory = new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+					@Override
+					public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+						ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {};
+						thread.setName(name + "-" + threadCount.incrementAndGet());
+						return thread;
+					}
+				};
+				return new ForkJoinPool(parallelism, factory, null, false);
+			}
+		};
+	}
+	
+	public static ExecutorDefinition virtualThreads(final int maxConcurrency, final int queueCapacity) {
+		return new ExecutorDefinition() {
+			@Override
+			public ExecutorService createExecutor(String name) {
+				return new ThreadPerTaskExecutor(NamedThreadFactory.virtualOrPlatform(name), maxConcurrency, queueCapacity);
+			}
+		};
+	}
+}
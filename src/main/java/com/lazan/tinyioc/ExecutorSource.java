@@ -0,0 +1,12 @@
+package com.lazan.tinyioc;
+
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+public interface ExecutorSource {
+	Set<String> getExecutorNames();
+	ExecutorService getExecutor(String name);
+	int getActiveCount(String name);
+	int getQueueDepth(String name);
+	void shutdown();
+}
@@ -1,16 +1,42 @@
 package com.lazan.tinyioc;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
 @SuppressWarnings("serial")
 public class IocException extends RuntimeException {
+	private final String msgTemplate;
+	private transient Object[] msgArgs;
+	private String message;
+
 	public IocException(String msgTemplate) {
 		super(msgTemplate);
+		this.msgTemplate = msgTemplate;
+		this.message = msgTemplate;
 	}
 
 	public IocException(String msgTemplate, Object... msgArgs) {
-		super(String.format(msgTemplate, msgArgs));
+		this(null, msgTemplate, msgArgs);
 	}
 
 	public IocException(Throwable cause, String msgTemplate, Object... msgArgs) {
-		super(String.format(msgTemplate, msgArgs), cause);
+		super(null, cause);
+		this.msgTemplate = msgTemplate;
+		this.msgArgs = msgArgs;
+	}
+
+	@Override
+	public String getMessage() {
+		String result = message;
+		if (result == null) {
+			result = String.format(msgTemplate, msgArgs);
+			message = result;
+		}
+		return result;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		getMessage();
+		out.defaultWriteObject();
 	}
 }
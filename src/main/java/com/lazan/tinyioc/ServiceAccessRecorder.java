@@ -0,0 +1,80 @@
+package com.lazan.tinyioc;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class ServiceAccessRecorder {
+	private static class Entry {
+		private final String serviceId;
+		private final long buildNanos;
+		
+		Entry(String serviceId, long buildNanos) {
+			this.serviceId = serviceId;
+			this.buildNanos = buildNanos;
+		}
+	}
+	
+	private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+	
+	public void recordRealization(String serviceId, long buildNanos) {
+		entries.add(new Entry(serviceId, buildNanos));
+	}
+	
+	public List<String> getServiceIds() {
+		List<String> serviceIds = new ArrayList<>();
+		for (Entry entry : entries) {
+			serviceIds.add(entry.serviceId);
+		}
+		return serviceIds;
+	}
+	
+	public void write(Appendable out) throws IOException {
+		for (Entry entry : entries) {
+			out.append(entry.serviceId).append('\t').append(String.valueOf(entry.buildNanos)).append('\n');
+		}
+	}
+	
+	public void write(File profile) throws IOException {
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(profile), StandardCharsets.UTF_8)) {
+			write(out);
+		}
+	}
+	
+	public static List<String> readProfile(File profile) throws IOException {
+		if (!profile.isFile()) {
+			return Collections.emptyList();
+		}
+		try (Reader in = new InputStreamReader(new FileInputStream(profile), StandardCharsets.UTF_8)) {
+			return readProfile(in);
+		}
+	}
+	
+	public static List<String> readProfile(Reader in) throws IOException {
+		Set<String> serviceIds = new LinkedHashSet<>();
+		BufferedReader reader = new BufferedReader(in);
+		String line;
+		while ((line = reader.readLine()) != null) {
+			int tab = line.indexOf('\t');
+			String serviceId = tab == -1 ? line.trim() : line.substring(0, tab);
+			if (!serviceId.isEmpty()) {
+				serviceIds.add(serviceId);
+			}
+		}
+		return new ArrayList<>(serviceIds);
+	}
+}
@@ -5,9 +5,13 @@ public interface ServiceBinder {
 	<T> ServiceBinderOptions bind(Class<T> serviceType, Class<? extends T> concreteType);
 	<T> ServiceBinderOptions bind(Class<T> serviceType, T service);
 	<T> ServiceBinderOptions bind(Class<T> serviceType, ServiceBuilder<? extends T> builder);
+	<T> ServiceBinderOptions bind(Class<T> serviceType, String className, ClassLoader classLoader);
+	<T> ServiceBinderOptions bindAsync(Class<T> serviceType, AsyncServiceBuilder<? extends T> builder);
 	<T> ServiceBinderOptions override(Class<T> serviceType, Class<? extends T> concreteType);
 	<T> ServiceBinderOptions override(Class<T> serviceType, T service);
 	<T> ServiceBinderOptions override(Class<T> serviceType, ServiceBuilder<? extends T> builder);
+	<T> ServiceBinderOptions override(Class<T> serviceType, String className, ClassLoader classLoader);
+	<T> ServiceBinderOptions overrideAsync(Class<T> serviceType, AsyncServiceBuilder<? extends T> builder);
 	<T> ServiceDecoratorOptions decorate(Class<T> serviceType, String decoratorId, ServiceDecorator<? extends T> decorator);
 	void contribute(String serviceId, OrderedContributor<?> contributor);
 	void contribute(Class<?> serviceType, OrderedContributor<?> contributor);
@@ -3,4 +3,6 @@ package com.lazan.tinyioc;
 public interface ServiceBinderOptions {
 	ServiceBinderOptions withServiceId(String serviceId);
 	ServiceBinderOptions eagerLoad();
+	ServiceBinderOptions warmup(ServiceWarmup<?> warmup, int iterations);
+	ServiceBinderOptions when(Condition condition);
 }
@@ -0,0 +1,7 @@
+package com.lazan.tinyioc;
+
+public interface ServiceHandle<T> {
+	T get();
+	String getServiceId();
+	Class<T> getServiceType();
+}
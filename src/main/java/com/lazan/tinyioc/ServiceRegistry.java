@@ -1,7 +1,10 @@
 package com.lazan.tinyioc;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
 
 public interface ServiceRegistry {
 	Set<String> getServiceIds();
@@ -9,6 +12,21 @@ public interface ServiceRegistry {
 	<T> T getService(Class<T> serviceType);
 	Object getService(String serviceId);
 	<T> T getService(String serviceId, Class<T> serviceType);
+	<T> CompletionStage<T> getServiceAsync(Class<T> serviceType);
+	<T> CompletionStage<T> getServiceAsync(String serviceId, Class<T> serviceType);
+	CompletionStage<Void> ready();
+	CompletionStage<Void> readiness();
 	<T> Map<String, T> getServices(Class<T> serviceType);
+	<T> Stream<T> streamServices(Class<T> serviceType);
+	<T> Optional<T> findService(Class<T> serviceType);
+	<T> Optional<T> findService(String serviceId, Class<T> serviceType);
+	boolean containsService(Class<?> serviceType);
+	boolean containsService(String serviceId);
+	<T> ServiceHandle<T> handle(Class<T> serviceType);
+	<T> ServiceHandle<T> handle(String serviceId, Class<T> serviceType);
 	<T> T autobuild(Class<T> concreteType);
+	DependencyGraph getDependencyGraph();
+	ServiceRegistry createChild(ServiceModule... modules);
+	void extend(ServiceModule... modules);
+	void shutdown();
 }
@@ -1,14 +1,20 @@
 package com.lazan.tinyioc;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
-import com.lazan.tinyioc.internal.AnnotatedServiceModule;
-import com.lazan.tinyioc.internal.ServiceRegistryImpl;
+import com.lazan.tinyioc.internal.ModuleDiscovery;
+import com.lazan.tinyioc.internal.ServiceRegistryOptions;
+import com.lazan.tinyioc.internal.ServiceRegistryTemplateImpl;
 
 public class ServiceRegistryBuilder {
 	private List<ServiceModule> modules = new LinkedList<>();
+	private final ServiceRegistryOptions options = new ServiceRegistryOptions();
 	
 	public ServiceRegistryBuilder withModule(ServiceModule module) {
 		modules.add(module);
@@ -27,7 +33,7 @@ public class ServiceRegistryBuilder {
 	}
 	
 	public ServiceRegistryBuilder withModuleType(Class<?> moduleType) {
-		return withModule(new AnnotatedServiceModule(moduleType));
+		return withModule(ModuleDiscovery.createModule(moduleType));
 	}
 	
 	public ServiceRegistryBuilder withModuleTypes(Iterable<Class<?>> moduleTypes) {
@@ -44,7 +50,66 @@ public class ServiceRegistryBuilder {
 		return this;
 	}
 	
+	public ServiceRegistryBuilder withProperties(Map<String, String> properties) {
+		options.addProperties(properties);
+		return this;
+	}
+	
+	public ServiceRegistryBuilder withDiscoveredModules(ClassLoader classLoader) {
+		return withModules(ModuleDiscovery.loadModules(classLoader, null));
+	}
+	
+	public ServiceRegistryBuilder withDiscoveredModules(ClassLoader classLoader, Executor preloader) {
+		return withModules(ModuleDiscovery.loadModules(classLoader, preloader));
+	}
+	
+	public ServiceRegistryBuilder withClassPreloader(Executor classPreloader) {
+		options.setClassPreloader(classPreloader);
+		return this;
+	}
+	
+	public ServiceRegistryBuilder withParallelEagerLoad(Executor eagerLoader) {
+		options.setEagerLoader(eagerLoader);
+		return this;
+	}
+	
+	public ServiceRegistryBuilder withValidation() {
+		options.setValidate(true);
+		return this;
+	}
+	
+	public ServiceRegistryBuilder withWarmupExecutor(Executor warmupExecutor) {
+		options.setWarmupExecutor(warmupExecutor);
+		return this;
+	}
+	
+	public ServiceRegistryBuilder withAccessRecorder(ServiceAccessRecorder accessRecorder) {
+		options.setAccessRecorder(accessRecorder);
+		return this;
+	}
+	
+	public ServiceRegistryBuilder withPrewarming(File profile, Executor prewarmer) {
+		try {
+			return withPrewarming(ServiceAccessRecorder.readProfile(profile), prewarmer);
+		} catch (IOException e) {
+			throw new IocException(e, "Error reading profile '%s'", profile);
+		}
+	}
+	
+	public ServiceRegistryBuilder withPrewarming(List<String> serviceIds, Executor prewarmer) {
+		options.setPrewarming(serviceIds, prewarmer);
+		return this;
+	}
+	
+	List<ServiceModule> getModules() {
+		return modules;
+	}
+	
+	public ServiceRegistryTemplate compile() {
+		return new ServiceRegistryTemplateImpl(modules, options);
+	}
+	
 	public ServiceRegistry build() {
-		return new ServiceRegistryImpl(modules);
+		return compile().newRegistry();
 	}
 }
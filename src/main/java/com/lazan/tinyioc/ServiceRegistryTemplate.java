@@ -0,0 +1,8 @@
+package com.lazan.tinyioc;
+
+import java.util.Set;
+
+public interface ServiceRegistryTemplate {
+	Set<String> getServiceIds();
+	ServiceRegistry newRegistry();
+}
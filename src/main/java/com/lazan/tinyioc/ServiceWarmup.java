@@ -0,0 +1,5 @@
+package com.lazan.tinyioc;
+
+public interface ServiceWarmup<T> {
+	void warmup(T service);
+}
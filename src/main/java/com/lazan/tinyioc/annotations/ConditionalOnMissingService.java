@@ -0,0 +1,13 @@
+package com.lazan.tinyioc.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ConditionalOnMissingService {
+	Class<?> value() default void.class;
+	String serviceId() default "";
+}
@@ -0,0 +1,14 @@
+package com.lazan.tinyioc.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ConditionalOnProperty {
+	String name();
+	String havingValue() default "true";
+	boolean matchIfMissing() default false;
+}
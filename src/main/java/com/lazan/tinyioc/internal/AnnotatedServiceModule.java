@@ -3,8 +3,9 @@ package com.lazan.tinyioc.internal;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -12,8 +13,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import javax.inject.Named;
-
+import com.lazan.tinyioc.Conditions;
 import com.lazan.tinyioc.IocException;
 import com.lazan.tinyioc.MappedConfiguration;
 import com.lazan.tinyioc.MappedContributor;
@@ -26,11 +26,11 @@ import com.lazan.tinyioc.ServiceBuilderContext;
 import com.lazan.tinyioc.ServiceDecorator;
 import com.lazan.tinyioc.ServiceDecoratorOptions;
 import com.lazan.tinyioc.ServiceModule;
-import com.lazan.tinyioc.ServiceRegistry;
 import com.lazan.tinyioc.UnorderedConfiguration;
 import com.lazan.tinyioc.UnorderedContributor;
-import com.lazan.tinyioc.annotations.Autobuild;
 import com.lazan.tinyioc.annotations.Bind;
+import com.lazan.tinyioc.annotations.ConditionalOnMissingService;
+import com.lazan.tinyioc.annotations.ConditionalOnProperty;
 import com.lazan.tinyioc.annotations.Contribute;
 import com.lazan.tinyioc.annotations.Decorate;
 import com.lazan.tinyioc.annotations.Service;
@@ -43,38 +43,112 @@ public class AnnotatedServiceModule implements ServiceModule {
 	static {
 		HANDLERS.put(Bind.class, new AnnotationHandler() {
 			@Override
-			public void handle(AnnotatedServiceModule module, Object instance, Method method, Annotation annotation, ServiceBinder binder) {
-				module.bind(instance, method, (Bind) annotation, binder);
+			public MethodInvocationPlan prepare(Method method, Annotation annotation) {
+				validateBind(method);
+				return null;
+			}
+			@Override
+			public void handle(AnnotatedServiceModule module, Object instance, ModuleMethod moduleMethod, ServiceBinder binder) {
+				module.bind(instance, moduleMethod.getMethod(), (Bind) moduleMethod.getAnnotation(), binder);
 			}
 		});
 		HANDLERS.put(Service.class, new AnnotationHandler() {
 			@Override
-			public void handle(AnnotatedServiceModule module, Object instance, Method method, Annotation annotation, ServiceBinder binder) {
-				module.service(instance, method, (Service) annotation, binder);
+			public MethodInvocationPlan prepare(Method method, Annotation annotation) {
+				return MethodInvocationPlan.forService(method);
+			}
+			@Override
+			public void handle(AnnotatedServiceModule module, Object instance, ModuleMethod moduleMethod, ServiceBinder binder) {
+				module.service(instance, moduleMethod.getPlan(), (Service) moduleMethod.getAnnotation(), binder);
 			}
 		});
 		HANDLERS.put(ServiceOverride.class, new AnnotationHandler() {
 			@Override
-			public void handle(AnnotatedServiceModule module, Object instance, Method method, Annotation annotation, ServiceBinder binder) {
-				module.serviceOverride(instance, method, (ServiceOverride) annotation, binder);
+			public MethodInvocationPlan prepare(Method method, Annotation annotation) {
+				return MethodInvocationPlan.forService(method);
+			}
+			@Override
+			public void handle(AnnotatedServiceModule module, Object instance, ModuleMethod moduleMethod, ServiceBinder binder) {
+				module.serviceOverride(instance, moduleMethod.getPlan(), (ServiceOverride) moduleMethod.getAnnotation(), binder);
 			}
 		});
 		HANDLERS.put(Decorate.class, new AnnotationHandler() {
 			@Override
-			public void handle(AnnotatedServiceModule module, Object instance, Method method, Annotation annotation, ServiceBinder binder) {
-				module.decorate(instance, method, (Decorate) annotation, binder);
+			public MethodInvocationPlan prepare(Method method, Annotation annotation) {
+				return MethodInvocationPlan.forDecorator(method);
+			}
+			@Override
+			public void handle(AnnotatedServiceModule module, Object instance, ModuleMethod moduleMethod, ServiceBinder binder) {
+				module.decorate(instance, moduleMethod.getPlan(), (Decorate) moduleMethod.getAnnotation(), binder);
 			}
 		});
 		HANDLERS.put(Contribute.class, new AnnotationHandler() {
 			@Override
-			public void handle(AnnotatedServiceModule module, Object instance, Method method, Annotation annotation, ServiceBinder binder) {
-				module.contribute(instance, method, (Contribute) annotation, binder);
+			public MethodInvocationPlan prepare(Method method, Annotation annotation) {
+				return MethodInvocationPlan.forContributor(method, findContributionType(method, (Contribute) annotation));
+			}
+			@Override
+			public void handle(AnnotatedServiceModule module, Object instance, ModuleMethod moduleMethod, ServiceBinder binder) {
+				module.contribute(instance, moduleMethod.getPlan(), (Contribute) moduleMethod.getAnnotation(), binder);
 			}
 		});		
 	}
 
 	private static interface AnnotationHandler {
-		void handle(AnnotatedServiceModule module, Object instance, Method method, Annotation annotation, ServiceBinder binder);
+		MethodInvocationPlan prepare(Method method, Annotation annotation);
+		void handle(AnnotatedServiceModule module, Object instance, ModuleMethod moduleMethod, ServiceBinder binder);
+	}
+	
+	public static class ModuleMethod {
+		private final Method method;
+		private final Annotation annotation;
+		private final AnnotationHandler handler;
+		private final MethodInvocationPlan plan;
+
+		ModuleMethod(Method method, Annotation annotation, AnnotationHandler handler) {
+			this.method = method;
+			this.annotation = annotation;
+			this.handler = handler;
+			this.plan = handler.prepare(method, annotation);
+		}
+
+		public Method getMethod() {
+			return method;
+		}
+
+		public Annotation getAnnotation() {
+			return annotation;
+		}
+
+		public MethodInvocationPlan getPlan() {
+			return plan;
+		}
+	}
+
+	private static final ClassValue<List<ModuleMethod>> MODULE_METHODS = new ClassValue<List<ModuleMethod>>() {
+		@Override
+		protected List<ModuleMethod> computeValue(Class<?> moduleType) {
+			List<ModuleMethod> moduleMethods = new ArrayList<>();
+			for (Method method : moduleType.getMethods()) {
+				Annotation handleMe = null;
+				for (Annotation ann : method.getAnnotations()) {
+					if (HANDLERS.containsKey(ann.annotationType())) {
+						if (handleMe != null) {
+							throw new IocException("Found %s and %s on %s.%s", handleMe.annotationType(), ann.annotationType(), moduleType.getName(), method.getName());
+						}
+						handleMe = ann;
+					}
+				}
+				if (handleMe != null) {
+					moduleMethods.add(new ModuleMethod(method, handleMe, HANDLERS.get(handleMe.annotationType())));
+				}
+			}
+			return Collections.unmodifiableList(moduleMethods);
+		}
+	};
+
+	public static List<ModuleMethod> getModuleMethods(Class<?> moduleType) {
+		return MODULE_METHODS.get(moduleType);
 	}
 	
 	public AnnotatedServiceModule(Class<?> moduleType) {
@@ -82,24 +156,16 @@ public class AnnotatedServiceModule implements ServiceModule {
 		this.moduleType = moduleType;
 	}
 	
+	public Class<?> getModuleType() {
+		return moduleType;
+	}
+	
 	@Override
 	public void bind(ServiceBinder binder) {
 		Object[] instanceRef = new Object[1];
-		for (Method method : moduleType.getMethods()) {
-			Annotation handleMe = null;
-			for (Annotation ann : method.getAnnotations()) {
-				if (HANDLERS.containsKey(ann.annotationType())) {
-					if (handleMe != null) {
-						throw new IocException("Found %s and %s on %s.%s", handleMe.annotationType(), ann.annotationType(), moduleType.getName(), method.getName());
-					}
-					handleMe = ann;
-				}
-			}
-			if (handleMe != null) {
-				Object instance = getInstance(instanceRef, method);
-				Class<? extends Annotation> annType = handleMe.annotationType();
-				HANDLERS.get(annType).handle(this, instance, method, handleMe, binder);
-			}
+		for (ModuleMethod moduleMethod : getModuleMethods(moduleType)) {
+			Object instance = getInstance(instanceRef, moduleMethod.getMethod());
+			moduleMethod.handler.handle(this, instance, moduleMethod, binder);
 		}
 	}
 
@@ -118,21 +184,23 @@ public class AnnotatedServiceModule implements ServiceModule {
 		return instance;
 	}
 
-	protected void bind(Object instance, Method method, Bind bind, ServiceBinder binder) {
-		if (method.getParameterTypes().length == 1 && method.getParameterTypes()[0].equals(ServiceBinder.class)) {
-			try {
-				method.invoke(instance, new Object[] { binder });
-			} catch (Exception e) {
-				throw new IocException(e, "Error invoking %s.%s", method.getDeclaringClass().getName(), method.getName());
-			}
-		} else {
+	protected static void validateBind(Method method) {
+		if (method.getParameterTypes().length != 1 || !method.getParameterTypes()[0].equals(ServiceBinder.class)) {
 			throw new IocException("Incompatible parameter types for @Bind method %s.%s, expected single ServiceBinder parameter", method.getDeclaringClass().getName(), method.getName());
 		}
 	}
+
+	protected void bind(Object instance, Method method, Bind bind, ServiceBinder binder) {
+		try {
+			method.invoke(instance, new Object[] { binder });
+		} catch (Exception e) {
+			throw new IocException(e, "Error invoking %s.%s", method.getDeclaringClass().getName(), method.getName());
+		}
+	}
 	
 	@SuppressWarnings("unchecked")
-	protected void service(Object instance, Method method, Service annotation, ServiceBinder binder) {
-		ServiceBinderOptions options = binder.bind(method.getReturnType(), createServiceBuilder(instance, method));
+	protected void service(Object instance, MethodInvocationPlan plan, Service annotation, ServiceBinder binder) {
+		ServiceBinderOptions options = binder.bind(plan.getMethod().getReturnType(), createServiceBuilder(instance, plan));
 		String serviceId = annotation.serviceId();
 		if (!serviceId.isEmpty()) {
 			options.withServiceId(serviceId);
@@ -140,11 +208,12 @@ public class AnnotatedServiceModule implements ServiceModule {
 		if (annotation.eagerLoad()) {
 			options.eagerLoad();
 		}
+		addConditions(plan.getMethod(), options);
 	}
 	
 	@SuppressWarnings("unchecked")
-	protected void serviceOverride(Object instance, Method method, ServiceOverride annotation, ServiceBinder binder) {
-		ServiceBinderOptions options = binder.override(method.getReturnType(), createServiceBuilder(instance, method));
+	protected void serviceOverride(Object instance, MethodInvocationPlan plan, ServiceOverride annotation, ServiceBinder binder) {
+		ServiceBinderOptions options = binder.override(plan.getMethod().getReturnType(), createServiceBuilder(instance, plan));
 		String serviceId = annotation.value();
 		if (!serviceId.isEmpty()) {
 			options.withServiceId(serviceId);
@@ -152,38 +221,33 @@ public class AnnotatedServiceModule implements ServiceModule {
 		if (annotation.eagerLoad()) {
 			options.eagerLoad();
 		}
+		addConditions(plan.getMethod(), options);
 	}
 	
-	private static final Set<Class<?>> CONTRIBUTION_TYPES = new LinkedHashSet<>(Arrays.asList(OrderedConfiguration.class, UnorderedConfiguration.class, MappedConfiguration.class));
-	
-	static interface ParameterProvider {
-		boolean canProvide(Named named, Class<?> paramType);
-		<T> T provide(Named named, Class<T> paramType);
-	}
-	
-	static class TypeParameterProvider<T> implements ParameterProvider {
-		Class<T> type;
-		T value;
-		public TypeParameterProvider(Class<T> type, T value) {
-			super();
-			this.type = type;
-			this.value = value;
+	protected static void addConditions(Method method, ServiceBinderOptions options) {
+		ConditionalOnProperty onProperty = method.getAnnotation(ConditionalOnProperty.class);
+		if (onProperty != null) {
+			options.when(Conditions.onProperty(onProperty.name(), onProperty.havingValue(), onProperty.matchIfMissing()));
 		}
-		@Override
-		public boolean canProvide(Named named, Class<?> paramType) {
-			return named == null && paramType.equals(type);
-		}
-		@Override
-		public <T2> T2 provide(Named named, Class<T2> paramType) {
-			return paramType.cast(value);
+		ConditionalOnMissingService onMissing = method.getAnnotation(ConditionalOnMissingService.class);
+		if (onMissing != null) {
+			if (!onMissing.serviceId().isEmpty() && !onMissing.value().equals(void.class)) {
+				throw new IocException("Error with %s.%s. Expected at most one of serviceId and value on @ConditionalOnMissingService", 
+						method.getDeclaringClass().getSimpleName(), method.getName());
+			}
+			if (!onMissing.serviceId().isEmpty()) {
+				options.when(Conditions.onMissingService(onMissing.serviceId()));
+			} else {
+				options.when(Conditions.onMissingService(onMissing.value().equals(void.class) ? method.getReturnType() : onMissing.value()));
+			}
 		}
 	}
-		
-	protected void contribute(Object instance, Method method, Contribute annotation, ServiceBinder binder) {
+	
+	private static final Set<Class<?>> CONTRIBUTION_TYPES = new LinkedHashSet<>(Arrays.asList(OrderedConfiguration.class, UnorderedConfiguration.class, MappedConfiguration.class));
+	
+	protected static Class<?> findContributionType(Method method, Contribute annotation) {
 		Map<Integer, Class<?>> paramIndexes = new LinkedHashMap<>();
-		String serviceId = annotation.serviceId().isEmpty() ? null : annotation.serviceId();
-		Class<?> serviceType = annotation.serviceType().equals(void.class) ? null : annotation.serviceType();
-		int valueCount = (serviceId == null ? 0 : 1) + (serviceType == null ? 0 : 1);
+		int valueCount = (annotation.serviceId().isEmpty() ? 0 : 1) + (annotation.serviceType().equals(void.class) ? 0 : 1);
 		if (valueCount != 1) {
 			throw new IocException("Error with %s.%s. Expected one of serviceId and serviceType, found %s", 
 					method.getDeclaringClass().getSimpleName(), method.getName(), valueCount);
@@ -198,38 +262,29 @@ public class AnnotatedServiceModule implements ServiceModule {
 			throw new IocException("Error with %s.%s. Expected 1 parameter of the types %s, found %s", 
 					method.getDeclaringClass().getSimpleName(), method.getName(), CONTRIBUTION_TYPES, paramIndexes.size());
 		}
-		Class<?> contributionType = paramIndexes.values().iterator().next();
+		return paramIndexes.values().iterator().next();
+	}
+		
+	protected void contribute(Object instance, MethodInvocationPlan plan, Contribute annotation, ServiceBinder binder) {
+		String serviceId = annotation.serviceId().isEmpty() ? null : annotation.serviceId();
+		Class<?> serviceType = annotation.serviceType().equals(void.class) ? null : annotation.serviceType();
+		Class<?> contributionType = plan.getConfigurationType();
 		if (contributionType.equals(OrderedConfiguration.class)) {
-			OrderedContributor<?> contributor = new OrderedContributor<Object>() {
-				@Override
-				public void contribute(ServiceBuilderContext context, OrderedConfiguration<Object> configuration) {
-					invoke(method, instance, context, new TypeParameterProvider<>(OrderedConfiguration.class, configuration));
-				}
-			};
+			OrderedContributor<?> contributor = new PlanOrderedContributor(instance, plan);
 			if (serviceId != null) {
 				binder.contribute(serviceId, contributor);
 			} else {
 				binder.contribute(serviceType, contributor);
 			}
 		} else if (contributionType.equals(UnorderedConfiguration.class)) {
-			UnorderedContributor<?> contributor = new UnorderedContributor<Object>() {
-				@Override
-				public void contribute(ServiceBuilderContext context, UnorderedConfiguration<Object> configuration) {
-					invoke(method, instance, context, new TypeParameterProvider<>(UnorderedConfiguration.class, configuration));
-				}
-			};
+			UnorderedContributor<?> contributor = new PlanUnorderedContributor(instance, plan);
 			if (serviceId != null) {
 				binder.contribute(serviceId, contributor);
 			} else {
 				binder.contribute(serviceType, contributor);
 			}
 		} else {
-			MappedContributor<?, ?> contributor = new MappedContributor<Object, Object>() {
-				@Override
-				public void contribute(ServiceBuilderContext context, MappedConfiguration<Object, Object> configuration) {
-					invoke(method, instance, context, new TypeParameterProvider<>(MappedConfiguration.class, configuration));
-				}
-			};
+			MappedContributor<?, ?> contributor = new PlanMappedContributor(instance, plan);
 			if (serviceId != null) {
 				binder.contribute(serviceId, contributor);
 			} else {
@@ -239,52 +294,13 @@ public class AnnotatedServiceModule implements ServiceModule {
 	}	
 	
 	@SuppressWarnings("rawtypes")
-	protected ServiceBuilder createServiceBuilder(Object instance, final Method method) {
-		return new ServiceBuilder() {
-			@Override
-			public Object build(ServiceBuilderContext context) {
-				ParameterProvider provider = new ParameterProvider() {
-					@Override
-					public boolean canProvide(Named named, Class<?> paramType) {
-						return named == null && (paramType.equals(Map.class) || paramType.equals(List.class) || paramType.equals(Collection.class));
-					}
-					
-					@Override
-					public <T> T provide(Named named, Class<T> paramType) {
-						if (paramType.equals(Map.class)) {
-							return paramType.cast(context.getMappedContributions());
-						} else if (paramType.equals(List.class)) {
-							return paramType.cast(context.getOrderedContributions());
-						} else {
-							return paramType.cast(context.getUnorderedContributions());
-						}
-					}
-				};
-				return invoke(method, instance, context, provider);
-			}
-		};
+	protected ServiceBuilder createServiceBuilder(Object instance, MethodInvocationPlan plan) {
+		return new PlanServiceBuilder(instance, plan);
 	}
 
-	@SuppressWarnings({"rawtypes", "unchecked"})
-	protected void decorate(Object instance, Method method, Decorate annotation, ServiceBinder binder) {
-		ServiceDecoratorOptions options = binder.decorate(method.getReturnType(), annotation.decoratorId(), new ServiceDecorator() {
-			public Object decorate(ServiceBuilderContext context, Object delegate) {
-				ParameterProvider paramProvider = new ParameterProvider() {
-					@Override
-					public boolean canProvide(Named named, Class<?> paramType) {
-						if (named != null) {
-							return context.getServiceId().equals(named.value());
-						}	
-						return context.getServiceType().equals(paramType);
-					}
-					@Override
-					public <T> T provide(Named named, Class<T> paramType) {
-						return paramType.cast(delegate);
-					}
-				};
-				return invoke(method, instance, context, paramProvider);
-			}
-		});
+	@SuppressWarnings("unchecked")
+	protected void decorate(Object instance, MethodInvocationPlan plan, Decorate annotation, ServiceBinder binder) {
+		ServiceDecoratorOptions options = binder.decorate(plan.getMethod().getReturnType(), annotation.decoratorId(), new PlanServiceDecorator(instance, plan));
 		if (!annotation.serviceId().isEmpty()) {
 			options.withServiceId(annotation.serviceId());
 		}
@@ -292,49 +308,75 @@ public class AnnotatedServiceModule implements ServiceModule {
 		options.after(annotation.after());
 	}
 	
-	protected <A extends Annotation> A findAnnotation(Annotation[] anns, Class<A> type) {
-		for (Annotation ann : anns) {
-			if (type.equals(ann.annotationType())) {
-				return type.cast(ann);
-			}
+	private static abstract class PlanInvoker implements DeclaresDependencies {
+		protected final Object instance;
+		protected final MethodInvocationPlan plan;
+		
+		PlanInvoker(Object instance, MethodInvocationPlan plan) {
+			this.instance = instance;
+			this.plan = plan;
+		}
+		
+		@Override
+		public List<DependencyPoint> getDependencyPoints(String serviceId, Class<?> serviceType) {
+			return plan.getDependencyPoints(serviceId, serviceType);
 		}
-		return null;
 	}
-
-	protected Object invoke(Method method, Object instance, ServiceBuilderContext context, ParameterProvider provider) {
-		Class<?>[] paramTypes = method.getParameterTypes();
-		ServiceRegistry registry = context.getServiceRegistry();
-		Annotation[][] paramAnnotations = method.getParameterAnnotations();
-		Object[] params = new Object[paramTypes.length];
-		for (int i = 0; i < paramTypes.length; ++i) {
-			Class<?> paramType = paramTypes[i];
-			Named named = findAnnotation(paramAnnotations[i], Named.class);
-			Autobuild autobuild = findAnnotation(paramAnnotations[i], Autobuild.class);
-			if (named != null && autobuild != null) {
-				throw new IocException("Found @Named and Autobuild on argument %s of %s.%s", i, method.getDeclaringClass().getSimpleName(), method.getName());
-			}
-			Object param;
-			if (autobuild != null) {
-				param = registry.autobuild(paramType);
-			} else if (provider != null && provider.canProvide(named, paramType)) {
-				param = provider.provide(named, paramType);
-			} else  {
-				try {
-					if (named != null) {
-						param = registry.getService(named.value(), paramType);
-					} else {
-						param = registry.getService(paramType);
-					}
-				} catch (IocException e) {
-					throw new IocException(e, "Error with argument %s of %s.%s", i, method.getDeclaringClass().getSimpleName(), method.getName());
-				}
-			}
-			params[i] = param;
+	
+	@SuppressWarnings("rawtypes")
+	private static class PlanServiceBuilder extends PlanInvoker implements ServiceBuilder {
+		PlanServiceBuilder(Object instance, MethodInvocationPlan plan) {
+			super(instance, plan);
 		}
-		try {
-			return method.invoke(instance, params);
-		} catch (Exception e) {
-			throw new IocException(e, "Error building '%s'", context.getServiceId());
+		
+		@Override
+		public Object build(ServiceBuilderContext context) {
+			return plan.invoke(instance, context, null);
+		}
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private static class PlanServiceDecorator extends PlanInvoker implements ServiceDecorator {
+		PlanServiceDecorator(Object instance, MethodInvocationPlan plan) {
+			super(instance, plan);
+		}
+		
+		@Override
+		public Object decorate(ServiceBuilderContext context, Object delegate) {
+			return plan.invoke(instance, context, delegate);
+		}
+	}
+	
+	private static class PlanOrderedContributor extends PlanInvoker implements OrderedContributor<Object> {
+		PlanOrderedContributor(Object instance, MethodInvocationPlan plan) {
+			super(instance, plan);
+		}
+		
+		@Override
+		public void contribute(ServiceBuilderContext context, OrderedConfiguration<Object> configuration) {
+			plan.invoke(instance, context, configuration);
+		}
+	}
+	
+	private static class PlanUnorderedContributor extends PlanInvoker implements UnorderedContributor<Object> {
+		PlanUnorderedContributor(Object instance, MethodInvocationPlan plan) {
+			super(instance, plan);
+		}
+		
+		@Override
+		public void contribute(ServiceBuilderContext context, UnorderedConfiguration<Object> configuration) {
+			plan.invoke(instance, context, configuration);
+		}
+	}
+	
+	private static class PlanMappedContributor extends PlanInvoker implements MappedContributor<Object, Object> {
+		PlanMappedContributor(Object instance, MethodInvocationPlan plan) {
+			super(instance, plan);
+		}
+		
+		@Override
+		public void contribute(ServiceBuilderContext context, MappedConfiguration<Object, Object> configuration) {
+			plan.invoke(instance, context, configuration);
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,219 @@
+package com.lazan.tinyioc.internal;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import com.lazan.tinyioc.IocException;
+import com.lazan.tinyioc.ServiceModule;
+import com.lazan.tinyioc.annotations.Autobuild;
+import com.lazan.tinyioc.internal.AnnotatedServiceModule.ModuleMethod;
+
+public class AotHints {
+	private static final List<Class<?>> REGISTRY_TYPES = Arrays.<Class<?>>asList(
+			ServiceRegistryImpl.class, ServiceRegistryOptions.class, ServiceRegistryTemplateImpl.class, ServiceDefinition.class,
+			ServiceReference.class, ServiceTypeIndex.class, ServiceHandleImpl.class, LazyServiceMap.class,
+			ServiceBinderImpl.class, ServiceBinderOptionsImpl.class, ServiceDecoratorOptionsImpl.class, ServiceBuilderContextImpl.class,
+			ConditionContextImpl.class, ConstantServiceBuilder.class, AutobuildServiceBuilder.class, ClassNameServiceBuilder.class,
+			ParentServiceBuilder.class, AsyncServiceBuilderAdapter.class, AutobuilderImpl.class, InjectionPlan.class,
+			MethodInvocationPlan.class, GeneratedTypes.class, AnnotatedServiceModule.class, ModuleDiscovery.class,
+			MappedConfigurationImpl.class, OrderedConfigurationImpl.class, UnorderedConfigurationImpl.class,
+			DeclaresDependencies.class, DeclaredDependencies.class, DependencyPoint.class, DependencyGraphImpl.class,
+			ExecutorSourceImpl.class, NamedExecutorBuilder.class, NamedThreadFactory.class, ThreadPerTaskExecutor.class);
+
+	private static class ReflectionEntry {
+		private final Set<Executable> executables = new LinkedHashSet<>();
+		private final Set<Field> fields = new LinkedHashSet<>();
+	}
+
+	private final Map<Class<?>, ReflectionEntry> reflectionEntries = new LinkedHashMap<>();
+	private final Set<Class<?>> loadedTypes = new LinkedHashSet<>();
+
+	public AotHints(Iterable<ServiceModule> modules) {
+		for (Class<?> registryType : REGISTRY_TYPES) {
+			addRegistryType(registryType);
+		}
+		ServiceBinderImpl binder = new ServiceBinderImpl();
+		for (ServiceModule module : modules) {
+			addModule(module);
+			module.bind(binder);
+		}
+		for (ServiceBinderOptionsImpl options : binder.getBindList()) {
+			addServiceBinding(options);
+		}
+		for (ServiceBinderOptionsImpl options : binder.getOverrideList()) {
+			addServiceBinding(options);
+		}
+	}
+
+	protected void addRegistryType(Class<?> type) {
+		loadedTypes.add(type);
+		for (Class<?> memberType : type.getDeclaredClasses()) {
+			addRegistryType(memberType);
+		}
+	}
+
+	protected void addModule(ServiceModule module) {
+		Class<?> type = module.getClass();
+		if (module instanceof AnnotatedServiceModule) {
+			addAnnotatedModule(((AnnotatedServiceModule) module).getModuleType());
+		} else if (type.getName().endsWith(GeneratedTypes.MODULE_SUFFIX)) {
+			addNoArgConstructor(type);
+		}
+		addLoadedType(type);
+	}
+
+	protected void addAnnotatedModule(Class<?> moduleType) {
+		boolean instanceRequired = false;
+		for (ModuleMethod moduleMethod : AnnotatedServiceModule.getModuleMethods(moduleType)) {
+			Method method = moduleMethod.getMethod();
+			getEntry(moduleType).executables.add(method);
+			instanceRequired |= !Modifier.isStatic(method.getModifiers());
+			addLoadedType(method.getReturnType());
+			Class<?>[] paramTypes = method.getParameterTypes();
+			Annotation[][] paramAnnotations = method.getParameterAnnotations();
+			for (int i = 0; i < paramTypes.length; ++i) {
+				if (InjectionPlan.findAnnotation(paramAnnotations[i], Autobuild.class) != null) {
+					addAutobuildType(paramTypes[i]);
+				}
+			}
+		}
+		if (instanceRequired) {
+			addNoArgConstructor(moduleType);
+		}
+		addLoadedType(moduleType);
+	}
+
+	protected void addServiceBinding(ServiceBinderOptionsImpl options) {
+		addLoadedType(options.getServiceType());
+		if (options.getServiceBuilder() instanceof AutobuildServiceBuilder) {
+			addAutobuildType(((AutobuildServiceBuilder<?>) options.getServiceBuilder()).getConcreteType());
+		} else if (options.getServiceBuilder() instanceof ClassNameServiceBuilder) {
+			addAutobuildType(((ClassNameServiceBuilder<?>) options.getServiceBuilder()).getConcreteType());
+		}
+	}
+
+	protected void addAutobuildType(Class<?> concreteType) {
+		if (reflectionEntries.containsKey(concreteType)) {
+			return;
+		}
+		try {
+			getEntry(concreteType).executables.add(InjectionPlan.findConstructor(concreteType));
+		} catch (IocException e) {
+			// reported when the service is built
+		}
+		Class<?> factoryType = GeneratedTypes.findGeneratedType(concreteType, GeneratedTypes.FACTORY_SUFFIX, Object.class);
+		if (factoryType != null) {
+			addNoArgConstructor(factoryType);
+			addLoadedType(factoryType);
+		}
+		Class<?> currentType = concreteType;
+		do {
+			for (Field field : currentType.getDeclaredFields()) {
+				if (field.getAnnotation(Inject.class) != null) {
+					getEntry(currentType).fields.add(field);
+				}
+			}
+			addLoadedType(currentType);
+			currentType = currentType.getSuperclass();
+		} while (currentType != null && currentType != Object.class);
+	}
+
+	protected void addNoArgConstructor(Class<?> type) {
+		try {
+			getEntry(type).executables.add(type.getDeclaredConstructor());
+		} catch (NoSuchMethodException e) {
+			// reported at bind time
+		}
+	}
+
+	protected void addLoadedType(Class<?> type) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		if (!type.isPrimitive()) {
+			loadedTypes.add(type);
+		}
+	}
+
+	protected ReflectionEntry getEntry(Class<?> type) {
+		ReflectionEntry entry = reflectionEntries.get(type);
+		if (entry == null) {
+			entry = new ReflectionEntry();
+			reflectionEntries.put(type, entry);
+		}
+		return entry;
+	}
+
+	public void writeReflectConfig(Appendable out) throws IOException {
+		out.append("[");
+		String entrySeparator = "\n";
+		for (Map.Entry<Class<?>, ReflectionEntry> mapEntry : reflectionEntries.entrySet()) {
+			ReflectionEntry entry = mapEntry.getValue();
+			out.append(entrySeparator).append("  {\n");
+			out.append("    \"name\" : ").append(quote(mapEntry.getKey().getName()));
+			if (!entry.executables.isEmpty()) {
+				out.append(",\n    \"methods\" : [");
+				String separator = "\n";
+				for (Executable executable : entry.executables) {
+					String name = executable instanceof Constructor ? "<init>" : executable.getName();
+					out.append(separator).append("      { \"name\" : ").append(quote(name)).append(", \"parameterTypes\" : [");
+					String paramSeparator = "";
+					for (Class<?> paramType : executable.getParameterTypes()) {
+						out.append(paramSeparator).append(quote(paramType.getTypeName()));
+						paramSeparator = ", ";
+					}
+					out.append("] }");
+					separator = ",\n";
+				}
+				out.append("\n    ]");
+			}
+			if (!entry.fields.isEmpty()) {
+				out.append(",\n    \"fields\" : [");
+				String separator = "\n";
+				for (Field field : entry.fields) {
+					out.append(separator).append("      { \"name\" : ").append(quote(field.getName()));
+					if (Modifier.isFinal(field.getModifiers())) {
+						out.append(", \"allowWrite\" : true");
+					}
+					out.append(" }");
+					separator = ",\n";
+				}
+				out.append("\n    ]");
+			}
+			out.append("\n  }");
+			entrySeparator = ",\n";
+		}
+		out.append("\n]\n");
+	}
+
+	public void writeClassList(Appendable out) throws IOException {
+		for (Class<?> type : loadedTypes) {
+			out.append(type.getName().replace('.', '/')).append('\n');
+		}
+	}
+
+	public Set<Class<?>> getReflectionTypes() {
+		return reflectionEntries.keySet();
+	}
+
+	public Set<Class<?>> getLoadedTypes() {
+		return loadedTypes;
+	}
+
+	protected static String quote(String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+}
@@ -0,0 +1,41 @@
+package com.lazan.tinyioc.internal;
+
+import java.util.concurrent.CompletionException;
+
+import com.lazan.tinyioc.AsyncServiceBuilder;
+import com.lazan.tinyioc.IocException;
+import com.lazan.tinyioc.ServiceBuilder;
+import com.lazan.tinyioc.ServiceBuilderContext;
+
+public class AsyncServiceBuilderAdapter<T> implements ServiceBuilder<T> {
+	private final AsyncServiceBuilder<? extends T> asyncServiceBuilder;
+
+	public AsyncServiceBuilderAdapter(AsyncServiceBuilder<? extends T> asyncServiceBuilder) {
+		super();
+		this.asyncServiceBuilder = asyncServiceBuilder;
+	}
+	
+	@Override
+	public T build(ServiceBuilderContext context) {
+		try {
+			return asyncServiceBuilder.build(context).toCompletableFuture().join();
+		} catch (CompletionException e) {
+			throw unwrap(e, context.getServiceId());
+		}
+	}
+	
+	public AsyncServiceBuilder<? extends T> getAsyncServiceBuilder() {
+		return asyncServiceBuilder;
+	}
+	
+	static RuntimeException unwrap(CompletionException e, String serviceId) {
+		Throwable cause = e.getCause();
+		if (cause instanceof RuntimeException) {
+			return (RuntimeException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return new IocException(cause, "Error building '%s'", serviceId);
+	}
+}
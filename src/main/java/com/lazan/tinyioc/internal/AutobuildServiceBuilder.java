@@ -1,10 +1,12 @@
 package com.lazan.tinyioc.internal;
 
+import java.util.List;
+
 import com.lazan.tinyioc.Autobuilder;
 import com.lazan.tinyioc.ServiceBuilder;
 import com.lazan.tinyioc.ServiceBuilderContext;
 
-public class AutobuildServiceBuilder<T> implements ServiceBuilder<T> {
+public class AutobuildServiceBuilder<T> implements ServiceBuilder<T>, DeclaresDependencies {
 	private final Class<T> concreteType;
 	
 	public AutobuildServiceBuilder(Class<T> concreteType) {
@@ -17,4 +19,13 @@ public class AutobuildServiceBuilder<T> implements ServiceBuilder<T> {
 		Autobuilder autobuilder = context.getServiceRegistry().getService(Autobuilder.class);
 		return autobuilder.autobuild(context, concreteType);
 	}
+	
+	@Override
+	public List<DependencyPoint> getDependencyPoints(String serviceId, Class<?> serviceType) {
+		return InjectionPlan.forType(concreteType).getDependencyPoints();
+	}
+	
+	public Class<T> getConcreteType() {
+		return concreteType;
+	}
 }
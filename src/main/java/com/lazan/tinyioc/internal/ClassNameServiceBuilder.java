@@ -0,0 +1,84 @@
+package com.lazan.tinyioc.internal;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.lazan.tinyioc.Autobuilder;
+import com.lazan.tinyioc.IocException;
+import com.lazan.tinyioc.ServiceBuilder;
+import com.lazan.tinyioc.ServiceBuilderContext;
+
+public class ClassNameServiceBuilder<T> implements ServiceBuilder<T>, DeclaresDependencies {
+	private final Class<T> serviceType;
+	private final String className;
+	private final ClassLoader classLoader;
+	private final Executor classPreloader;
+	private volatile Class<? extends T> concreteType;
+	
+	public ClassNameServiceBuilder(Class<T> serviceType, String className, ClassLoader classLoader, Executor classPreloader) {
+		super();
+		this.serviceType = serviceType;
+		this.className = className;
+		this.classLoader = classLoader;
+		this.classPreloader = classPreloader;
+	}
+
+	@Override
+	public T build(ServiceBuilderContext context) {
+		Autobuilder autobuilder = context.getServiceRegistry().getService(Autobuilder.class);
+		return autobuilder.autobuild(context, getConcreteType());
+	}
+	
+	@Override
+	public List<DependencyPoint> getDependencyPoints(String serviceId, Class<?> serviceType) {
+		return InjectionPlan.forType(getConcreteType()).getDependencyPoints();
+	}
+	
+	public Class<? extends T> getConcreteType() {
+		Class<? extends T> type = concreteType;
+		if (type == null) {
+			Class<?> loaded;
+			try {
+				loaded = Class.forName(className, true, classLoader);
+			} catch (ClassNotFoundException | LinkageError e) {
+				throw new IocException(e, "Error loading class '%s'", className);
+			}
+			if (!serviceType.isAssignableFrom(loaded)) {
+				throw new IocException("Class '%s' is not assignable to %s", className, serviceType.getName());
+			}
+			type = loaded.asSubclass(serviceType);
+			concreteType = type;
+		}
+		return type;
+	}
+	
+	public void preload() {
+		if (classPreloader == null || concreteType != null) {
+			return;
+		}
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					InjectionPlan.forType(getConcreteType());
+				} catch (RuntimeException | LinkageError e) {
+					// reported when the service is built
+				}
+			}
+		};
+		try {
+			classPreloader.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.run();
+		}
+	}
+	
+	public String getClassName() {
+		return className;
+	}
+	
+	public ClassLoader getClassLoader() {
+		return classLoader;
+	}
+}
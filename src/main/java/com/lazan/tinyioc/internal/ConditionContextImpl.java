@@ -0,0 +1,43 @@
+package com.lazan.tinyioc.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.lazan.tinyioc.ConditionContext;
+
+public class ConditionContextImpl implements ConditionContext {
+	private final Map<String, String> properties;
+	private final ServiceRegistryImpl parent;
+	private final Map<String, Class<?>> serviceTypes = new LinkedHashMap<>();
+	
+	public ConditionContextImpl(Map<String, String> properties, ServiceRegistryImpl parent) {
+		super();
+		this.properties = properties;
+		this.parent = parent;
+	}
+	
+	public void addService(String serviceId, Class<?> serviceType) {
+		serviceTypes.put(serviceId, serviceType);
+	}
+
+	@Override
+	public String getProperty(String name) {
+		String value = properties.get(name);
+		return value != null ? value : System.getProperty(name);
+	}
+
+	@Override
+	public boolean containsService(String serviceId) {
+		return serviceTypes.containsKey(serviceId) || (parent != null && parent.containsService(serviceId));
+	}
+
+	@Override
+	public boolean containsService(Class<?> serviceType) {
+		for (Class<?> candidate : serviceTypes.values()) {
+			if (serviceType.isAssignableFrom(candidate)) {
+				return true;
+			}
+		}
+		return parent != null && parent.containsService(serviceType);
+	}
+}
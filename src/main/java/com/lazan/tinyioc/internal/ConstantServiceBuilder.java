@@ -1,9 +1,12 @@
 package com.lazan.tinyioc.internal;
 
+import java.util.Collections;
+import java.util.List;
+
 import com.lazan.tinyioc.ServiceBuilder;
 import com.lazan.tinyioc.ServiceBuilderContext;
 
-public class ConstantServiceBuilder<T> implements ServiceBuilder<T> {
+public class ConstantServiceBuilder<T> implements ServiceBuilder<T>, DeclaresDependencies {
 	private final T service;
 	
 	public ConstantServiceBuilder(T service) {
@@ -15,4 +18,9 @@ public class ConstantServiceBuilder<T> implements ServiceBuilder<T> {
 	public T build(ServiceBuilderContext context) {
 		return service;
 	}
+	
+	@Override
+	public List<DependencyPoint> getDependencyPoints(String serviceId, Class<?> serviceType) {
+		return Collections.emptyList();
+	}
 }
\ No newline at end of file
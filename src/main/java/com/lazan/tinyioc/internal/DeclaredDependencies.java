@@ -0,0 +1,54 @@
+package com.lazan.tinyioc.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.lazan.tinyioc.IocException;
+
+public class DeclaredDependencies {
+	private List<DependencyPoint> points = Collections.emptyList();
+	private List<String> problems = Collections.emptyList();
+	private boolean complete = true;
+	
+	void addAll(List<?> sources, String serviceId, Class<?> serviceType) {
+		if (sources != null) {
+			for (Object source : sources) {
+				add(source, serviceId, serviceType);
+			}
+		}
+	}
+	
+	void add(Object source, String serviceId, Class<?> serviceType) {
+		if (!(source instanceof DeclaresDependencies)) {
+			complete = false;
+			return;
+		}
+		try {
+			List<DependencyPoint> sourcePoints = ((DeclaresDependencies) source).getDependencyPoints(serviceId, serviceType);
+			if (!sourcePoints.isEmpty()) {
+				if (points.isEmpty()) {
+					points = new ArrayList<>();
+				}
+				points.addAll(sourcePoints);
+			}
+		} catch (IocException e) {
+			if (problems.isEmpty()) {
+				problems = new ArrayList<>();
+			}
+			problems.add(String.format("Error with serviceId '%s': %s", serviceId, e.getMessage()));
+		}
+	}
+	
+	public List<DependencyPoint> getPoints() {
+		return points;
+	}
+	
+	public List<String> getProblems() {
+		return problems;
+	}
+	
+	public boolean isComplete() {
+		return complete;
+	}
+}
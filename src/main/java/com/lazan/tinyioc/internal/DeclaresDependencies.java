@@ -0,0 +1,7 @@
+package com.lazan.tinyioc.internal;
+
+import java.util.List;
+
+public interface DeclaresDependencies {
+	List<DependencyPoint> getDependencyPoints(String serviceId, Class<?> serviceType);
+}
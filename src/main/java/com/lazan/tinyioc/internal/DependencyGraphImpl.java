@@ -0,0 +1,195 @@
+package com.lazan.tinyioc.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.lazan.tinyioc.DependencyGraph;
+import com.lazan.tinyioc.IocException;
+
+public class DependencyGraphImpl implements DependencyGraph {
+	private final Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+	private final Set<String> incomplete = new LinkedHashSet<>();
+	private final Map<String, Set<String>> missing = new LinkedHashMap<>();
+	private final List<String> problems = new ArrayList<>();
+	
+	private final Map<String, ServiceReference<?>> referencesById;
+	private final ServiceTypeIndex typeIndex;
+	private final ServiceRegistryImpl registry;
+	
+	public DependencyGraphImpl(Map<String, ServiceReference<?>> referencesById, ServiceTypeIndex typeIndex) {
+		this.referencesById = referencesById;
+		this.typeIndex = typeIndex;
+		this.registry = null;
+		build(referencesById.values());
+	}
+	
+	public DependencyGraphImpl(Collection<ServiceReference<?>> references, ServiceRegistryImpl registry) {
+		this.referencesById = null;
+		this.typeIndex = null;
+		this.registry = registry;
+		build(references);
+	}
+	
+	protected void build(Collection<ServiceReference<?>> references) {
+		for (ServiceReference<?> reference : references) {
+			String serviceId = reference.getServiceId();
+			DeclaredDependencies declared = reference.getDeclaredDependencies();
+			ServiceRegistryImpl owner = registry == null ? null : registry.getOwner(reference);
+			Set<String> serviceDependencies = new LinkedHashSet<>();
+			for (DependencyPoint point : declared.getPoints()) {
+				String dependencyId = resolve(serviceId, point, owner);
+				if (dependencyId != null) {
+					serviceDependencies.add(dependencyId);
+				}
+			}
+			dependencies.put(serviceId, Collections.unmodifiableSet(serviceDependencies));
+			problems.addAll(declared.getProblems());
+			if (!declared.isComplete()) {
+				incomplete.add(serviceId);
+			}
+		}
+		findCycles();
+	}
+	
+	protected String resolve(String serviceId, DependencyPoint point, ServiceRegistryImpl owner) {
+		Class<?> type = point.getType();
+		if (point.getServiceId() != null) {
+			String dependencyId = point.getServiceId();
+			ServiceReference<?> reference = owner == null ? referencesById.get(dependencyId) : owner.findReference(dependencyId);
+			if (reference != null) {
+				Class<?> dependencyType = reference.getServiceType();
+				if (type.isAssignableFrom(dependencyType) || dependencyType.isAssignableFrom(type)) {
+					return dependencyId;
+				}
+				problems.add(String.format("Incompatible dependency '%s' for serviceId '%s' at %s, expected %s found %s", 
+						dependencyId, serviceId, point.getLocation(), type.getName(), dependencyType.getName()));
+				return null;
+			}
+			addMissing(serviceId, dependencyId);
+			problems.add(String.format("Missing dependency '%s' for serviceId '%s' at %s", dependencyId, serviceId, point.getLocation()));
+			return null;
+		}
+		List<ServiceReference<?>> candidates = owner == null ? typeIndex.getCandidates(type) : owner.findCandidates(type);
+		if (candidates.size() == 1) {
+			return candidates.get(0).getServiceId();
+		}
+		if (candidates.isEmpty()) {
+			addMissing(serviceId, type.getName());
+			problems.add(String.format("Missing dependency %s for serviceId '%s' at %s", type.getName(), serviceId, point.getLocation()));
+		} else {
+			List<String> candidateIds = new ArrayList<>(candidates.size());
+			for (ServiceReference<?> candidate : candidates) {
+				candidateIds.add(candidate.getServiceId());
+			}
+			problems.add(String.format("Ambiguous dependency %s for serviceId '%s' at %s, found %s", 
+					type.getName(), serviceId, point.getLocation(), candidateIds));
+		}
+		return null;
+	}
+	
+	private void addMissing(String serviceId, String dependency) {
+		Set<String> serviceMissing = missing.get(serviceId);
+		if (serviceMissing == null) {
+			serviceMissing = new LinkedHashSet<>();
+			missing.put(serviceId, serviceMissing);
+		}
+		serviceMissing.add(dependency);
+	}
+	
+	protected void findCycles() {
+		Set<String> visited = new HashSet<>();
+		for (String serviceId : dependencies.keySet()) {
+			findCycles(serviceId, new LinkedList<String>(), new HashSet<String>(), visited);
+		}
+	}
+	
+	private void findCycles(String serviceId, LinkedList<String> path, Set<String> onPath, Set<String> visited) {
+		if (onPath.contains(serviceId)) {
+			List<String> cycle = new ArrayList<>(path.subList(path.indexOf(serviceId), path.size()));
+			cycle.add(serviceId);
+			problems.add(String.format("Circular dependency %s", cycle));
+			return;
+		}
+		if (!visited.add(serviceId)) {
+			return;
+		}
+		path.addLast(serviceId);
+		onPath.add(serviceId);
+		for (String dependencyId : dependencies.get(serviceId)) {
+			findCycles(dependencyId, path, onPath, visited);
+		}
+		onPath.remove(serviceId);
+		path.removeLast();
+	}
+	
+	@Override
+	public Set<String> getServiceIds() {
+		return Collections.unmodifiableSet(dependencies.keySet());
+	}
+	
+	@Override
+	public Set<String> getDependencies(String serviceId) {
+		Set<String> serviceDependencies = dependencies.get(serviceId);
+		if (serviceDependencies == null) {
+			throw new IocException("No service found for serviceId '%s'", serviceId);
+		}
+		return serviceDependencies;
+	}
+	
+	@Override
+	public boolean isComplete(String serviceId) {
+		getDependencies(serviceId);
+		return !incomplete.contains(serviceId);
+	}
+	
+	@Override
+	public List<String> getProblems() {
+		return Collections.unmodifiableList(problems);
+	}
+	
+	@Override
+	public void validate() {
+		if (!problems.isEmpty()) {
+			StringBuilder message = new StringBuilder();
+			for (String problem : problems) {
+				message.append(String.format("%n  ")).append(problem);
+			}
+			throw new IocException("Found %s problems in the service graph:%s", problems.size(), message);
+		}
+	}
+	
+	@Override
+	public String toDot() {
+		StringBuilder dot = new StringBuilder("digraph services {\n");
+		for (String serviceId : dependencies.keySet()) {
+			dot.append("  ").append(quote(serviceId));
+			if (incomplete.contains(serviceId)) {
+				dot.append(" [style=dashed]");
+			}
+			dot.append(";\n");
+		}
+		for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+			for (String dependencyId : entry.getValue()) {
+				dot.append("  ").append(quote(entry.getKey())).append(" -> ").append(quote(dependencyId)).append(";\n");
+			}
+		}
+		for (Map.Entry<String, Set<String>> entry : missing.entrySet()) {
+			for (String dependency : entry.getValue()) {
+				dot.append("  ").append(quote(entry.getKey())).append(" -> ").append(quote(dependency)).append(" [color=red];\n");
+			}
+		}
+		return dot.append("}\n").toString();
+	}
+	
+	private static String quote(String value) {
+		return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+	}
+}
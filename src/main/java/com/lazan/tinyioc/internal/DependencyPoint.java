@@ -0,0 +1,26 @@
+package com.lazan.tinyioc.internal;
+
+public class DependencyPoint {
+	private final Class<?> type;
+	private final String serviceId;
+	private final String location;
+
+	public DependencyPoint(Class<?> type, String serviceId, String location) {
+		super();
+		this.type = type;
+		this.serviceId = serviceId;
+		this.location = location;
+	}
+	
+	public Class<?> getType() {
+		return type;
+	}
+	
+	public String getServiceId() {
+		return serviceId;
+	}
+	
+	public String getLocation() {
+		return location;
+	}
+}
@@ -0,0 +1,107 @@
+package com.lazan.tinyioc.internal;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import com.lazan.tinyioc.ExecutorDefinition;
+import com.lazan.tinyioc.ExecutorSource;
+import com.lazan.tinyioc.IocException;
+
+public class ExecutorSourceImpl implements ExecutorSource {
+	private final Map<String, ExecutorDefinition> definitions;
+	private final ConcurrentMap<String, ExecutorService> executors = new ConcurrentHashMap<>();
+	private boolean shutdown;
+
+	public ExecutorSourceImpl(Map<String, ExecutorDefinition> definitions) {
+		super();
+		this.definitions = Collections.unmodifiableMap(new LinkedHashMap<>(definitions));
+	}
+	
+	@Override
+	public Set<String> getExecutorNames() {
+		return definitions.keySet();
+	}
+	
+	@Override
+	public ExecutorService getExecutor(String name) {
+		ExecutorService executor = executors.get(name);
+		if (executor == null) {
+			ExecutorDefinition definition = definitions.get(name);
+			if (definition == null) {
+				throw new IocException("No executor found for name '%s'", name);
+			}
+			synchronized (executors) {
+				executor = executors.get(name);
+				if (executor == null) {
+					if (shutdown) {
+						throw new IocException("Cannot create executor '%s', the ExecutorSource has been shut down", name);
+					}
+					executor = definition.createExecutor(name);
+					executors.put(name, executor);
+				}
+			}
+		}
+		return executor;
+	}
+	
+	@Override
+	public int getActiveCount(String name) {
+		ExecutorService executor = findExecutor(name);
+		if (executor == null) {
+			return 0;
+		}
+		if (executor instanceof ThreadPoolExecutor) {
+			return ((ThreadPoolExecutor) executor).getActiveCount();
+		}
+		if (executor instanceof ForkJoinPool) {
+			return ((ForkJoinPool) executor).getActiveThreadCount();
+		}
+		if (executor instanceof ThreadPerTaskExecutor) {
+			return ((ThreadPerTaskExecutor) executor).getActiveCount();
+		}
+		return -1;
+	}
+	
+	@Override
+	public int getQueueDepth(String name) {
+		ExecutorService executor = findExecutor(name);
+		if (executor == null) {
+			return 0;
+		}
+		if (executor instanceof ThreadPoolExecutor) {
+			return ((ThreadPoolExecutor) executor).getQueue().size();
+		}
+		if (executor instanceof ForkJoinPool) {
+			ForkJoinPool pool = (ForkJoinPool) executor;
+			return (int) (pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+		}
+		if (executor instanceof ThreadPerTaskExecutor) {
+			return ((ThreadPerTaskExecutor) executor).getQueueDepth();
+		}
+		return -1;
+	}
+	
+	protected ExecutorService findExecutor(String name) {
+		if (!definitions.containsKey(name)) {
+			throw new IocException("No executor found for name '%s'", name);
+		}
+		return executors.get(name);
+	}
+	
+	@Override
+	public void shutdown() {
+		synchronized (executors) {
+			shutdown = true;
+			for (ExecutorService executor : executors.values()) {
+				executor.shutdown();
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.lazan.tinyioc.internal;
+
+import com.lazan.tinyioc.AutobuildFactory;
+import com.lazan.tinyioc.IocException;
+import com.lazan.tinyioc.ServiceModule;
+
+public class GeneratedTypes {
+	public static final String MODULE_SUFFIX = "_TinyIocModule";
+	public static final String FACTORY_SUFFIX = "_TinyIocFactory";
+
+	private static final ClassValue<Class<?>> MODULE_TYPES = new ClassValue<Class<?>>() {
+		@Override
+		protected Class<?> computeValue(Class<?> type) {
+			return findGeneratedType(type, MODULE_SUFFIX, ServiceModule.class);
+		}
+	};
+
+	public static String getGeneratedName(String binaryName, String suffix) {
+		int simpleStart = binaryName.lastIndexOf('.') + 1;
+		StringBuilder generatedName = new StringBuilder(binaryName.length() + suffix.length() + 4);
+		generatedName.append(binaryName, 0, simpleStart);
+		for (int i = simpleStart; i < binaryName.length(); ++i) {
+			char c = binaryName.charAt(i);
+			if (c == '_') {
+				generatedName.append("_1");
+			} else if (c == '$') {
+				generatedName.append("_2");
+			} else {
+				generatedName.append(c);
+			}
+		}
+		return generatedName.append(suffix).toString();
+	}
+
+	public static ServiceModule createModule(Class<?> moduleType) {
+		Class<?> generatedType = MODULE_TYPES.get(moduleType);
+		return generatedType == null ? null : (ServiceModule) newInstance(generatedType);
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> AutobuildFactory<T> createFactory(Class<T> concreteType) {
+		Class<?> generatedType = findGeneratedType(concreteType, FACTORY_SUFFIX, AutobuildFactory.class);
+		return generatedType == null ? null : (AutobuildFactory<T>) newInstance(generatedType);
+	}
+
+	public static Class<?> findGeneratedType(Class<?> type, String suffix, Class<?> expectedType) {
+		ClassLoader classLoader = type.getClassLoader();
+		if (classLoader == null) {
+			return null;
+		}
+		String generatedName = getGeneratedName(type.getName(), suffix);
+		try {
+			Class<?> generatedType = Class.forName(generatedName, false, classLoader);
+			return expectedType.isAssignableFrom(generatedType) ? generatedType : null;
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	protected static Object newInstance(Class<?> generatedType) {
+		try {
+			return generatedType.newInstance();
+		} catch (Exception e) {
+			throw new IocException(e, "Error instantiating %s", generatedType.getName());
+		}
+	}
+}
@@ -0,0 +1,260 @@
+package com.lazan.tinyioc.internal;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.lazan.tinyioc.AutobuildFactory;
+import com.lazan.tinyioc.IocException;
+import com.lazan.tinyioc.ServiceBuilderContext;
+import com.lazan.tinyioc.ServiceRegistry;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class InjectionPlan<T> {
+	static interface ContextValueSource<T> {
+		T getValue(ServiceBuilderContext context);
+	}
+
+	private static final Map<Class<?>, ContextValueSource> CONTEXT_VALUE_SOURCES = new LinkedHashMap<>();
+	static {
+		CONTEXT_VALUE_SOURCES.put(Map.class, new ContextValueSource<Map>() {
+			@Override
+			public Map getValue(ServiceBuilderContext context) {
+				return context.getMappedContributions();
+			}
+		});
+		CONTEXT_VALUE_SOURCES.put(List.class, new ContextValueSource<List>() {
+			@Override
+			public List getValue(ServiceBuilderContext context) {
+				return context.getOrderedContributions();
+			}
+		});
+		CONTEXT_VALUE_SOURCES.put(Collection.class, new ContextValueSource<Collection>() {
+			@Override
+			public Collection getValue(ServiceBuilderContext context) {
+				return context.getUnorderedContributions();
+			}
+		});
+	}
+
+	private static final ClassValue<InjectionPlan<?>> PLANS = new ClassValue<InjectionPlan<?>>() {
+		@Override
+		protected InjectionPlan<?> computeValue(Class<?> type) {
+			return new InjectionPlan(type);
+		}
+	};
+
+	static ContextValueSource<?> getContextValueSource(Class<?> type) {
+		return CONTEXT_VALUE_SOURCES.get(type);
+	}
+
+	public static <T> InjectionPlan<T> forType(Class<T> concreteType) {
+		return (InjectionPlan<T>) PLANS.get(concreteType);
+	}
+
+	public static class InjectionPoint {
+		private final Class<?> type;
+		private final String name;
+		private final ContextValueSource<?> contextValueSource;
+
+		InjectionPoint(Class<?> type, Named named) {
+			this.type = type;
+			this.name = named == null ? null : named.value();
+			this.contextValueSource = named == null ? CONTEXT_VALUE_SOURCES.get(type) : null;
+		}
+
+		public Object resolve(ServiceRegistry registry, ServiceBuilderContext context) {
+			if (name != null) {
+				return registry.getService(name, type);
+			}
+			if (context != null && contextValueSource != null) {
+				return contextValueSource.getValue(context);
+			}
+			return registry.getService(type);
+		}
+
+		public Class<?> getType() {
+			return type;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public boolean isContextValue() {
+			return contextValueSource != null;
+		}
+	}
+
+	public static class FieldInjectionPoint extends InjectionPoint {
+		private final Field field;
+		private final MethodHandle setter;
+
+		FieldInjectionPoint(Field field) {
+			super(field.getType(), field.getAnnotation(Named.class));
+			this.field = field;
+			try {
+				field.setAccessible(true);
+				MethodHandle _setter = MethodHandles.lookup().unreflectSetter(field);
+				if (Modifier.isStatic(field.getModifiers())) {
+					_setter = MethodHandles.dropArguments(_setter, 0, Object.class);
+				}
+				this.setter = _setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+			} catch (Exception e) {
+				throw new IocException(e, "Error accessing field '%s' in type '%s'", field.getName(), field.getDeclaringClass().getName());
+			}
+		}
+
+		public void inject(Object instance, Object value) throws Throwable {
+			setter.invokeExact(instance, value);
+		}
+
+		public Field getField() {
+			return field;
+		}
+	}
+
+	protected static class ConstructorPlan<T> {
+		private final Constructor<T> constructor;
+		private final MethodHandle constructorHandle;
+		private final List<InjectionPoint> parameters;
+
+		ConstructorPlan(Class<T> concreteType) {
+			this.constructor = findConstructor(concreteType);
+			Class<?>[] paramTypes = constructor.getParameterTypes();
+			Annotation[][] paramAnnotations = constructor.getParameterAnnotations();
+			List<InjectionPoint> _parameters = new ArrayList<>(paramTypes.length);
+			for (int i = 0; i < paramTypes.length; ++i) {
+				_parameters.add(new InjectionPoint(paramTypes[i], findAnnotation(paramAnnotations[i], Named.class)));
+			}
+			try {
+				constructor.setAccessible(true);
+				this.constructorHandle = MethodHandles.lookup().unreflectConstructor(constructor)
+						.asType(MethodType.genericMethodType(paramTypes.length))
+						.asSpreader(Object[].class, paramTypes.length);
+			} catch (Exception e) {
+				throw new IocException(e, "Error accessing constructor for type %s", concreteType.getName());
+			}
+			this.parameters = Collections.unmodifiableList(_parameters);
+		}
+	}
+
+	private final Class<T> concreteType;
+	private final AutobuildFactory<T> factory;
+	private final List<FieldInjectionPoint> fields;
+	private volatile ConstructorPlan<T> constructorPlan;
+
+	protected InjectionPlan(Class<T> concreteType) {
+		this.concreteType = concreteType;
+		this.factory = GeneratedTypes.createFactory(concreteType);
+		if (factory == null) {
+			this.constructorPlan = new ConstructorPlan<>(concreteType);
+		}
+		List<FieldInjectionPoint> _fields = new ArrayList<>();
+		Class<?> currentType = concreteType;
+		do {
+			for (Field field : currentType.getDeclaredFields()) {
+				if (field.getAnnotation(Inject.class) != null) {
+					_fields.add(new FieldInjectionPoint(field));
+				}
+			}
+			currentType = currentType.getSuperclass();
+		} while (currentType != null);
+		this.fields = Collections.unmodifiableList(_fields);
+	}
+
+	protected ConstructorPlan<T> getConstructorPlan() {
+		ConstructorPlan<T> plan = constructorPlan;
+		if (plan == null) {
+			// racing threads build equal plans, either may win
+			plan = new ConstructorPlan<>(concreteType);
+			constructorPlan = plan;
+		}
+		return plan;
+	}
+
+	public T newInstance(Object[] params) throws Throwable {
+		return (T) getConstructorPlan().constructorHandle.invokeExact(params);
+	}
+
+	public AutobuildFactory<T> getFactory() {
+		return factory;
+	}
+
+	public Constructor<T> getConstructor() {
+		return getConstructorPlan().constructor;
+	}
+
+	public List<InjectionPoint> getParameters() {
+		return getConstructorPlan().parameters;
+	}
+
+	public List<FieldInjectionPoint> getFields() {
+		return fields;
+	}
+
+	public List<DependencyPoint> getDependencyPoints() {
+		String typeName = concreteType.getSimpleName();
+		List<InjectionPoint> parameters = getParameters();
+		List<DependencyPoint> points = new ArrayList<>(parameters.size() + fields.size());
+		for (int i = 0; i < parameters.size(); ++i) {
+			InjectionPoint parameter = parameters.get(i);
+			if (!parameter.isContextValue()) {
+				points.add(new DependencyPoint(parameter.getType(), parameter.getName(), String.format("constructor parameter %s of %s", i, typeName)));
+			}
+		}
+		for (FieldInjectionPoint field : fields) {
+			if (!field.isContextValue()) {
+				points.add(new DependencyPoint(field.getType(), field.getName(), String.format("field %s of %s", field.getField().getName(), typeName)));
+			}
+		}
+		return points;
+	}
+
+	static <A extends Annotation> A findAnnotation(Annotation[] anns, Class<A> type) {
+		for (Annotation ann : anns) {
+			if (type.equals(ann.annotationType())) {
+				return type.cast(ann);
+			}
+		}
+		return null;
+	}
+
+	static <T> Constructor<T> findConstructor(Class<T> concreteType) {
+		Constructor[] constructors = concreteType.getConstructors();
+		if (constructors.length == 0) {
+			throw new IocException("No public constructors found for type %s", concreteType.getName());
+		}
+		if (constructors.length == 1) {
+			return constructors[0];
+		}
+		int injectCount = 0;
+		Constructor selected = null;
+		for (Constructor current : constructors) {
+			if (current.getAnnotation(Inject.class) != null) {
+				selected = current;
+				injectCount ++;
+			}
+		}
+		if (injectCount == 1) {
+			return selected;
+		}
+		if (injectCount == 0) {
+			throw new IocException("Found %s public constructors for type %s, please annotate one with javax.inject.Inject", constructors.length, concreteType.getName());
+		}
+		throw new IocException("Found %s public constructors annotated with javax.inject.Inject for type %s", injectCount, concreteType.getName());
+	}
+}
@@ -0,0 +1,127 @@
+package com.lazan.tinyioc.internal;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+public class LazyServiceMap<T> extends AbstractMap<String, T> {
+	private final ServiceRegistryImpl registry;
+	private final Class<T> serviceType;
+	private final List<ServiceReference<?>> references;
+	private final Map<String, ServiceReference<?>> referencesById;
+	private final Set<Map.Entry<String, T>> entrySet;
+
+	public LazyServiceMap(ServiceRegistryImpl registry, Class<T> serviceType, List<ServiceReference<?>> references) {
+		super();
+		this.registry = registry;
+		this.serviceType = serviceType;
+		this.references = references;
+		Map<String, ServiceReference<?>> _referencesById = new LinkedHashMap<>();
+		for (ServiceReference<?> reference : references) {
+			_referencesById.put(reference.getServiceId(), reference);
+		}
+		this.referencesById = Collections.unmodifiableMap(_referencesById);
+		this.entrySet = new EntrySet();
+	}
+
+	@Override
+	public T get(Object serviceId) {
+		ServiceReference<?> reference = referencesById.get(serviceId);
+		return reference == null ? null : realize(reference);
+	}
+
+	@Override
+	public boolean containsKey(Object serviceId) {
+		return referencesById.containsKey(serviceId);
+	}
+
+	@Override
+	public int size() {
+		return references.size();
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return referencesById.keySet();
+	}
+
+	@Override
+	public Set<Map.Entry<String, T>> entrySet() {
+		return entrySet;
+	}
+
+	protected T realize(ServiceReference<?> reference) {
+		return serviceType.cast(registry.realize(reference));
+	}
+
+	private class EntrySet extends AbstractSet<Map.Entry<String, T>> {
+		@Override
+		public Iterator<Map.Entry<String, T>> iterator() {
+			final Iterator<ServiceReference<?>> iterator = references.iterator();
+			return new Iterator<Map.Entry<String, T>>() {
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public Map.Entry<String, T> next() {
+					return new LazyEntry(iterator.next());
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return references.size();
+		}
+	}
+
+	private class LazyEntry implements Map.Entry<String, T> {
+		private final ServiceReference<?> reference;
+
+		LazyEntry(ServiceReference<?> reference) {
+			this.reference = reference;
+		}
+
+		@Override
+		public String getKey() {
+			return reference.getServiceId();
+		}
+
+		@Override
+		public T getValue() {
+			return realize(reference);
+		}
+
+		@Override
+		public T setValue(T value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) other;
+			return Objects.equals(getKey(), entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+}
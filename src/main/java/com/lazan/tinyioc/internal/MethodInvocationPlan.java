@@ -0,0 +1,221 @@
+package com.lazan.tinyioc.internal;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Named;
+
+import com.lazan.tinyioc.IocException;
+import com.lazan.tinyioc.ServiceBuilderContext;
+import com.lazan.tinyioc.annotations.Autobuild;
+import com.lazan.tinyioc.internal.InjectionPlan.ContextValueSource;
+
+public class MethodInvocationPlan {
+	static interface ParameterResolver {
+		Object resolve(ServiceBuilderContext context, Object argument);
+		void addDependencyPoints(String serviceId, Class<?> serviceType, List<DependencyPoint> points);
+	}
+
+	private static enum Kind { SERVICE, DECORATOR, CONTRIBUTOR }
+
+	private final Method method;
+	private final Class<?> configurationType;
+	private final MethodHandle handle;
+	private final ParameterResolver[] resolvers;
+
+	public static MethodInvocationPlan forService(Method method) {
+		return new MethodInvocationPlan(method, Kind.SERVICE, null);
+	}
+
+	public static MethodInvocationPlan forDecorator(Method method) {
+		return new MethodInvocationPlan(method, Kind.DECORATOR, null);
+	}
+
+	public static MethodInvocationPlan forContributor(Method method, Class<?> configurationType) {
+		return new MethodInvocationPlan(method, Kind.CONTRIBUTOR, configurationType);
+	}
+
+	protected MethodInvocationPlan(Method method, Kind kind, Class<?> configurationType) {
+		this.method = method;
+		this.configurationType = configurationType;
+		Class<?>[] paramTypes = method.getParameterTypes();
+		Annotation[][] paramAnnotations = method.getParameterAnnotations();
+		this.resolvers = new ParameterResolver[paramTypes.length];
+		for (int i = 0; i < paramTypes.length; ++i) {
+			Class<?> paramType = paramTypes[i];
+			Named named = InjectionPlan.findAnnotation(paramAnnotations[i], Named.class);
+			Autobuild autobuild = InjectionPlan.findAnnotation(paramAnnotations[i], Autobuild.class);
+			if (named != null && autobuild != null) {
+				throw new IocException("Found @Named and Autobuild on argument %s of %s.%s", i, method.getDeclaringClass().getSimpleName(), method.getName());
+			}
+			String name = named == null ? null : named.value();
+			ParameterResolver lookup = new LookupResolver(method, i, paramType, name);
+			if (autobuild != null) {
+				resolvers[i] = new AutobuildResolver(paramType);
+			} else if (kind == Kind.SERVICE && name == null && InjectionPlan.getContextValueSource(paramType) != null) {
+				resolvers[i] = new ContextValueResolver(InjectionPlan.getContextValueSource(paramType));
+			} else if (kind == Kind.DECORATOR) {
+				resolvers[i] = new DelegateResolver(paramType, name, lookup);
+			} else if (kind == Kind.CONTRIBUTOR && name == null && paramType.equals(configurationType)) {
+				resolvers[i] = ArgumentResolver.INSTANCE;
+			} else {
+				resolvers[i] = lookup;
+			}
+		}
+		try {
+			method.setAccessible(true);
+			MethodHandle methodHandle = MethodHandles.lookup().unreflect(method);
+			if (Modifier.isStatic(method.getModifiers())) {
+				methodHandle = MethodHandles.dropArguments(methodHandle, 0, Object.class);
+			}
+			this.handle = methodHandle
+					.asType(MethodType.genericMethodType(paramTypes.length + 1))
+					.asSpreader(Object[].class, paramTypes.length);
+		} catch (Exception e) {
+			throw new IocException(e, "Error accessing method %s.%s", method.getDeclaringClass().getName(), method.getName());
+		}
+	}
+
+	public Object invoke(Object instance, ServiceBuilderContext context, Object argument) {
+		Object[] params = new Object[resolvers.length];
+		for (int i = 0; i < resolvers.length; ++i) {
+			params[i] = resolvers[i].resolve(context, argument);
+		}
+		try {
+			return handle.invokeExact(instance, params);
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IocException(e, "Error building '%s'", context.getServiceId());
+		}
+	}
+
+	public List<DependencyPoint> getDependencyPoints(String serviceId, Class<?> serviceType) {
+		List<DependencyPoint> points = new ArrayList<>(resolvers.length);
+		for (ParameterResolver resolver : resolvers) {
+			resolver.addDependencyPoints(serviceId, serviceType, points);
+		}
+		return points;
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	public Class<?> getConfigurationType() {
+		return configurationType;
+	}
+
+	private static class AutobuildResolver implements ParameterResolver {
+		private final Class<?> type;
+
+		AutobuildResolver(Class<?> type) {
+			this.type = type;
+		}
+
+		@Override
+		public Object resolve(ServiceBuilderContext context, Object argument) {
+			return context.getServiceRegistry().autobuild(type);
+		}
+
+		@Override
+		public void addDependencyPoints(String serviceId, Class<?> serviceType, List<DependencyPoint> points) {
+			points.addAll(InjectionPlan.forType(type).getDependencyPoints());
+		}
+	}
+
+	private static class ContextValueResolver implements ParameterResolver {
+		private final ContextValueSource<?> source;
+
+		ContextValueResolver(ContextValueSource<?> source) {
+			this.source = source;
+		}
+
+		@Override
+		public Object resolve(ServiceBuilderContext context, Object argument) {
+			return source.getValue(context);
+		}
+
+		@Override
+		public void addDependencyPoints(String serviceId, Class<?> serviceType, List<DependencyPoint> points) {
+		}
+	}
+
+	private static class ArgumentResolver implements ParameterResolver {
+		static final ArgumentResolver INSTANCE = new ArgumentResolver();
+
+		@Override
+		public Object resolve(ServiceBuilderContext context, Object argument) {
+			return argument;
+		}
+
+		@Override
+		public void addDependencyPoints(String serviceId, Class<?> serviceType, List<DependencyPoint> points) {
+		}
+	}
+
+	private static class DelegateResolver implements ParameterResolver {
+		private final Class<?> type;
+		private final String name;
+		private final ParameterResolver lookup;
+
+		DelegateResolver(Class<?> type, String name, ParameterResolver lookup) {
+			this.type = type;
+			this.name = name;
+			this.lookup = lookup;
+		}
+
+		@Override
+		public Object resolve(ServiceBuilderContext context, Object argument) {
+			return isDelegate(context.getServiceId(), context.getServiceType()) ? argument : lookup.resolve(context, argument);
+		}
+
+		@Override
+		public void addDependencyPoints(String serviceId, Class<?> serviceType, List<DependencyPoint> points) {
+			if (!isDelegate(serviceId, serviceType)) {
+				lookup.addDependencyPoints(serviceId, serviceType, points);
+			}
+		}
+
+		private boolean isDelegate(String serviceId, Class<?> serviceType) {
+			return name != null ? serviceId.equals(name) : serviceType.equals(type);
+		}
+	}
+
+	private static class LookupResolver implements ParameterResolver {
+		private final Method method;
+		private final int index;
+		private final Class<?> type;
+		private final String name;
+
+		LookupResolver(Method method, int index, Class<?> type, String name) {
+			this.method = method;
+			this.index = index;
+			this.type = type;
+			this.name = name;
+		}
+
+		@Override
+		public Object resolve(ServiceBuilderContext context, Object argument) {
+			try {
+				if (name != null) {
+					return context.getServiceRegistry().getService(name, type);
+				}
+				return context.getServiceRegistry().getService(type);
+			} catch (IocException e) {
+				throw new IocException(e, "Error with argument %s of %s.%s", index, method.getDeclaringClass().getSimpleName(), method.getName());
+			}
+		}
+
+		@Override
+		public void addDependencyPoints(String serviceId, Class<?> serviceType, List<DependencyPoint> points) {
+			points.add(new DependencyPoint(type, name, String.format("parameter %s of %s.%s", index, method.getDeclaringClass().getSimpleName(), method.getName())));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.lazan.tinyioc.internal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import com.lazan.tinyioc.IocException;
+import com.lazan.tinyioc.ServiceModule;
+
+public class ModuleDiscovery {
+	public static final String MODULE_INDEX = "META-INF/tiny-ioc/modules";
+
+	public static List<String> readModuleNames(ClassLoader classLoader) {
+		Set<String> moduleNames = new LinkedHashSet<>();
+		try {
+			Enumeration<URL> indexes = classLoader.getResources(MODULE_INDEX);
+			while (indexes.hasMoreElements()) {
+				URL index = indexes.nextElement();
+				try (InputStream in = index.openStream()) {
+					BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+					String line;
+					while ((line = reader.readLine()) != null) {
+						line = line.trim();
+						if (!line.isEmpty() && !line.startsWith("#")) {
+							moduleNames.add(line);
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new IocException(e, "Error reading %s", MODULE_INDEX);
+		}
+		return new ArrayList<>(moduleNames);
+	}
+
+	// with a preloader the classes are loaded, initialized and scanned in parallel, the modules keep index order
+	public static List<ServiceModule> loadModules(final ClassLoader classLoader, Executor preloader) {
+		List<String> moduleNames = readModuleNames(classLoader);
+		List<ServiceModule> modules = new ArrayList<>(moduleNames.size());
+		if (preloader == null) {
+			for (String moduleName : moduleNames) {
+				modules.add(loadModule(classLoader, moduleName));
+			}
+			return modules;
+		}
+		List<CompletableFuture<ServiceModule>> futures = new ArrayList<>(moduleNames.size());
+		for (final String moduleName : moduleNames) {
+			Supplier<ServiceModule> task = new Supplier<ServiceModule>() {
+				@Override
+				public ServiceModule get() {
+					return loadModule(classLoader, moduleName);
+				}
+			};
+			CompletableFuture<ServiceModule> future;
+			try {
+				future = CompletableFuture.supplyAsync(task, preloader);
+			} catch (RejectedExecutionException e) {
+				future = CompletableFuture.completedFuture(task.get());
+			}
+			futures.add(future);
+		}
+		for (CompletableFuture<ServiceModule> future : futures) {
+			try {
+				modules.add(future.join());
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw e;
+			}
+		}
+		return modules;
+	}
+
+	public static ServiceModule loadModule(ClassLoader classLoader, String moduleName) {
+		Class<?> moduleType;
+		try {
+			moduleType = Class.forName(moduleName, true, classLoader);
+		} catch (ClassNotFoundException | LinkageError e) {
+			throw new IocException(e, "Error loading discovered module %s", moduleName);
+		}
+		if (ServiceModule.class.isAssignableFrom(moduleType)) {
+			return (ServiceModule) GeneratedTypes.newInstance(moduleType);
+		}
+		ServiceModule module = createModule(moduleType);
+		if (module instanceof AnnotatedServiceModule) {
+			AnnotatedServiceModule.getModuleMethods(moduleType);
+		}
+		return module;
+	}
+
+	public static ServiceModule createModule(Class<?> moduleType) {
+		ServiceModule generatedModule = GeneratedTypes.createModule(moduleType);
+		if (generatedModule != null) {
+			return generatedModule;
+		}
+		return new AnnotatedServiceModule(moduleType);
+	}
+}
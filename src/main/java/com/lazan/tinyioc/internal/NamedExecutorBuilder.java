@@ -0,0 +1,28 @@
+package com.lazan.tinyioc.internal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import com.lazan.tinyioc.ExecutorSource;
+import com.lazan.tinyioc.ServiceBuilder;
+import com.lazan.tinyioc.ServiceBuilderContext;
+
+public class NamedExecutorBuilder implements ServiceBuilder<ExecutorService>, DeclaresDependencies {
+	private final String name;
+	
+	public NamedExecutorBuilder(String name) {
+		super();
+		this.name = name;
+	}
+
+	@Override
+	public ExecutorService build(ServiceBuilderContext context) {
+		return context.getServiceRegistry().getService(ExecutorSource.class).getExecutor(name);
+	}
+	
+	@Override
+	public List<DependencyPoint> getDependencyPoints(String serviceId, Class<?> serviceType) {
+		return Collections.singletonList(new DependencyPoint(ExecutorSource.class, null, "executor '" + name + "'"));
+	}
+}
@@ -0,0 +1,34 @@
+package com.lazan.tinyioc.internal;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NamedThreadFactory implements ThreadFactory {
+	private final String name;
+	private final AtomicInteger threadCount = new AtomicInteger();
+
+	public NamedThreadFactory(String name) {
+		super();
+		this.name = name;
+	}
+	
+	@Override
+	public Thread newThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	}
+	
+	public static ThreadFactory virtualOrPlatform(String name) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+			Method factory = builderType.getMethod("factory");
+			return (ThreadFactory) factory.invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			return new NamedThreadFactory(name);
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.lazan.tinyioc.internal;
+
+import com.lazan.tinyioc.ServiceBuilder;
+import com.lazan.tinyioc.ServiceBuilderContext;
+
+public class ParentServiceBuilder<T> implements ServiceBuilder<T> {
+	private final ServiceRegistryImpl parent;
+	private final String serviceId;
+	private final Class<T> serviceType;
+	
+	public ParentServiceBuilder(ServiceRegistryImpl parent, String serviceId, Class<T> serviceType) {
+		super();
+		this.parent = parent;
+		this.serviceId = serviceId;
+		this.serviceType = serviceType;
+	}
+
+	@Override
+	public T build(ServiceBuilderContext context) {
+		return parent.getService(serviceId, serviceType);
+	}
+}
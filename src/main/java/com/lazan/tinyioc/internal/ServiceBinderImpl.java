@@ -4,7 +4,9 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
+import com.lazan.tinyioc.AsyncServiceBuilder;
 import com.lazan.tinyioc.MappedContributor;
 import com.lazan.tinyioc.OrderedContributor;
 import com.lazan.tinyioc.ServiceBinder;
@@ -21,6 +23,16 @@ public class ServiceBinderImpl implements ServiceBinder {
 	private Map<String, List<OrderedContributor<?>>> orderedContributors = new LinkedHashMap<>();
 	private Map<String, List<UnorderedContributor<?>>> unorderedContributors = new LinkedHashMap<>();
 	private Map<String, List<MappedContributor<?, ?>>> mappedContributors = new LinkedHashMap<>();
+	private final Executor classPreloader;
+	
+	public ServiceBinderImpl() {
+		this(null);
+	}
+	
+	public ServiceBinderImpl(Executor classPreloader) {
+		super();
+		this.classPreloader = classPreloader;
+	}
 
 	@Override
 	public <T> ServiceBinderOptions bind(Class<T> serviceType) {
@@ -44,6 +56,16 @@ public class ServiceBinderImpl implements ServiceBinder {
 		return options;
 	}
 	
+	@Override
+	public <T> ServiceBinderOptions bind(Class<T> serviceType, String className, ClassLoader classLoader) {
+		return bind(serviceType, new ClassNameServiceBuilder<>(serviceType, className, classLoader, classPreloader));
+	}
+	
+	@Override
+	public <T> ServiceBinderOptions bindAsync(Class<T> serviceType, AsyncServiceBuilder<? extends T> builder) {
+		return bind(serviceType, new AsyncServiceBuilderAdapter<T>(builder));
+	}
+	
 	@Override
 	public <T> ServiceBinderOptions override(Class<T> serviceType, Class<? extends T> concreteType) {
 		return override(serviceType, new AutobuildServiceBuilder<>(concreteType));
@@ -61,6 +83,16 @@ public class ServiceBinderImpl implements ServiceBinder {
 		return options;
 	}
 	
+	@Override
+	public <T> ServiceBinderOptions override(Class<T> serviceType, String className, ClassLoader classLoader) {
+		return override(serviceType, new ClassNameServiceBuilder<>(serviceType, className, classLoader, classPreloader));
+	}
+	
+	@Override
+	public <T> ServiceBinderOptions overrideAsync(Class<T> serviceType, AsyncServiceBuilder<? extends T> builder) {
+		return override(serviceType, new AsyncServiceBuilderAdapter<T>(builder));
+	}
+	
 	@Override
 	public <T> ServiceDecoratorOptions decorate(Class<T> serviceType, String decoratorId, ServiceDecorator<? extends T> decorator) {
 		ServiceDecoratorOptionsImpl options = new ServiceDecoratorOptionsImpl(serviceType, decoratorId, decorator);
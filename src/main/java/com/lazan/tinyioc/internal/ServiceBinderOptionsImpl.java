@@ -1,13 +1,22 @@
 package com.lazan.tinyioc.internal;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.lazan.tinyioc.Condition;
+import com.lazan.tinyioc.ConditionContext;
 import com.lazan.tinyioc.ServiceBinderOptions;
 import com.lazan.tinyioc.ServiceBuilder;
+import com.lazan.tinyioc.ServiceWarmup;
 
 public class ServiceBinderOptionsImpl implements ServiceBinderOptions {
 	private final Class<?> serviceType;
 	private final ServiceBuilder<?> serviceBuilder;
 	private String serviceId;
 	private boolean eagerLoad;
+	private ServiceWarmup<?> warmup;
+	private int warmupIterations;
+	private List<Condition> conditions;
 
 	public ServiceBinderOptionsImpl(Class<?> serviceType, ServiceBuilder<?> serviceBuilder) {
 		super();
@@ -27,6 +36,37 @@ public class ServiceBinderOptionsImpl implements ServiceBinderOptions {
 		return this;
 	}
 	
+	@Override
+	public ServiceBinderOptions warmup(ServiceWarmup<?> warmup, int iterations) {
+		this.warmup = warmup;
+		this.warmupIterations = iterations;
+		return this;
+	}
+	
+	@Override
+	public ServiceBinderOptions when(Condition condition) {
+		if (conditions == null) {
+			conditions = new ArrayList<>(1);
+		}
+		conditions.add(condition);
+		return this;
+	}
+	
+	public boolean isConditional() {
+		return conditions != null;
+	}
+	
+	public boolean matches(ConditionContext context) {
+		if (conditions != null) {
+			for (Condition condition : conditions) {
+				if (!condition.matches(context)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
 	public String getServiceId() {
 		return serviceId;
 	}
@@ -42,4 +82,12 @@ public class ServiceBinderOptionsImpl implements ServiceBinderOptions {
 	public boolean isEagerLoad() {
 		return eagerLoad;
 	}
+	
+	public ServiceWarmup<?> getWarmup() {
+		return warmup;
+	}
+	
+	public int getWarmupIterations() {
+		return warmupIterations;
+	}
 }
\ No newline at end of file
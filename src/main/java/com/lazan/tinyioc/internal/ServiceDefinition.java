@@ -0,0 +1,67 @@
+package com.lazan.tinyioc.internal;
+
+import java.util.List;
+
+import com.lazan.tinyioc.MappedContributor;
+import com.lazan.tinyioc.OrderedContributor;
+import com.lazan.tinyioc.ServiceBuilder;
+import com.lazan.tinyioc.ServiceDecorator;
+import com.lazan.tinyioc.ServiceWarmup;
+import com.lazan.tinyioc.UnorderedContributor;
+
+public class ServiceDefinition<T> {
+	private final String serviceId;
+	private final Class<T> serviceType;
+	private final ServiceBuilder<T> builder;
+	private final boolean eagerLoad;
+	private final List<ServiceDecorator<T>> decorators;
+	private final List<UnorderedContributor<?>> unorderedContributions;
+	private final List<OrderedContributor<?>> orderedContributions;
+	private final List<MappedContributor<?, ?>> mappedContributions;
+	private final ServiceWarmup<?> warmup;
+	private final int warmupIterations;
+
+	public ServiceDefinition(String serviceId, Class<T> serviceType, ServiceBuilder<T> builder, boolean eagerLoad,
+			List<ServiceDecorator<T>> decorators, 
+			List<UnorderedContributor<?>> unorderedContributions,
+			List<OrderedContributor<?>> orderedContributions,
+			List<MappedContributor<?, ?>> mappedContributions,
+			ServiceWarmup<?> warmup, int warmupIterations) {
+		super();
+		this.serviceId = serviceId;
+		this.serviceType = serviceType;
+		this.builder = builder;
+		this.eagerLoad = eagerLoad;
+		this.decorators = decorators;
+		this.unorderedContributions = unorderedContributions;
+		this.orderedContributions = orderedContributions;
+		this.mappedContributions = mappedContributions;
+		this.warmup = warmup;
+		this.warmupIterations = warmupIterations;
+	}
+	
+	public ServiceReference<T> newReference() {
+		ServiceReference<T> reference = new ServiceReference<>(serviceId, serviceType, builder, eagerLoad, decorators, 
+				unorderedContributions, orderedContributions, mappedContributions);
+		if (warmup != null) {
+			reference.setWarmup(warmup, warmupIterations);
+		}
+		return reference;
+	}
+	
+	public String getServiceId() {
+		return serviceId;
+	}
+	
+	public Class<T> getServiceType() {
+		return serviceType;
+	}
+	
+	public ServiceBuilder<T> getBuilder() {
+		return builder;
+	}
+	
+	public boolean isEagerLoad() {
+		return eagerLoad;
+	}
+}
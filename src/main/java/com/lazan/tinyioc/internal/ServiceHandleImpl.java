@@ -0,0 +1,48 @@
+package com.lazan.tinyioc.internal;
+
+import com.lazan.tinyioc.IocException;
+import com.lazan.tinyioc.ServiceHandle;
+
+public class ServiceHandleImpl<T> implements ServiceHandle<T> {
+	private final ServiceRegistryImpl registry;
+	private final ServiceReference<?> reference;
+	private final Class<T> serviceType;
+	private volatile T service;
+
+	public ServiceHandleImpl(ServiceRegistryImpl registry, ServiceReference<?> reference, Class<T> serviceType) {
+		super();
+		this.registry = registry;
+		this.reference = reference;
+		this.serviceType = serviceType;
+	}
+
+	@Override
+	public T get() {
+		T result = service;
+		if (result == null) {
+			result = realize();
+		}
+		return result;
+	}
+
+	private T realize() {
+		Object candidate = registry.realize(reference);
+		try {
+			T result = serviceType.cast(candidate);
+			service = result;
+			return result;
+		} catch (ClassCastException e) {
+			throw new IocException(e, "Incompatible type for serviceId '%s'", reference.getServiceId());
+		}
+	}
+
+	@Override
+	public String getServiceId() {
+		return reference.getServiceId();
+	}
+
+	@Override
+	public Class<T> getServiceType() {
+		return serviceType;
+	}
+}
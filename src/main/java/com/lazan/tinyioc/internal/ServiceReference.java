@@ -4,18 +4,29 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import com.lazan.tinyioc.IocException;
 import com.lazan.tinyioc.MappedContributor;
 import com.lazan.tinyioc.OrderedContributor;
+import com.lazan.tinyioc.ServiceAccessRecorder;
 import com.lazan.tinyioc.ServiceBuilder;
 import com.lazan.tinyioc.ServiceBuilderContext;
 import com.lazan.tinyioc.ServiceDecorator;
+import com.lazan.tinyioc.ServiceWarmup;
 import com.lazan.tinyioc.UnorderedContributor;
 
 public class ServiceReference<T> {
@@ -43,9 +54,15 @@ public class ServiceReference<T> {
 	}
 	
 	private final String serviceId;
+	private final Class<T> serviceType;
 	private final boolean eagerLoad;
+	private final boolean async;
 	private ServiceDependencies dependencies;
+	private DeclaredDependencies declaredDependencies;
 	private final AtomicReference<Object> reference = new AtomicReference<>();
+	private ServiceWarmup<Object> warmup;
+	private int warmupIterations;
+	private CompletableFuture<Void> warmedUp;
 	
 	public ServiceReference(String serviceId, Class<T> serviceType, ServiceBuilder<T> builder, boolean eagerLoad,
 			List<ServiceDecorator<T>> decorators, 
@@ -54,51 +71,309 @@ public class ServiceReference<T> {
 			List<MappedContributor<?, ?>> mappedContributions) {
 		super();
 		this.serviceId = serviceId;
+		this.serviceType = serviceType;
 		this.eagerLoad = eagerLoad;
+		this.async = builder instanceof AsyncServiceBuilderAdapter;
 		this.dependencies = new ServiceDependencies(
 				serviceType, builder, decorators, 
 				unorderedContributions, orderedContributions, mappedContributions
 		);
 	}
 
+	// marks a realization in progress, other threads park on the latch rather than a monitor
+	private static class Realization {
+		private final Thread owner = Thread.currentThread();
+		private final String serviceId;
+		private final Realization parent;
+		private final CountDownLatch done = new CountDownLatch(1);
+		
+		Realization(String serviceId, Realization parent) {
+			this.serviceId = serviceId;
+			this.parent = parent;
+		}
+		
+		List<String> getServiceIdStack() {
+			LinkedList<String> stack = new LinkedList<>();
+			for (Realization current = this; current != null; current = current.parent) {
+				stack.addFirst(current.serviceId);
+			}
+			return stack;
+		}
+	}
+	
+	private static class AsyncResult {
+		private final CompletableFuture<Object> future;
+		
+		AsyncResult(CompletableFuture<Object> future) {
+			this.future = future;
+		}
+	}
+	
+	private static final ThreadLocal<Realization> CURRENT = new ThreadLocal<>();
+	
+	public static Set<String> getServiceIdStack() {
+		Realization current = CURRENT.get();
+		if (current == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(new LinkedHashSet<>(current.getServiceIdStack()));
+	}
+
 	public Object get(ServiceRegistryImpl registry) {
 		Object service = reference.get();
-		if (service == null) {
-			synchronized(reference) {
-				service = reference.get();
-				if (service == null) {
-					Set<String> serviceIdStack = registry.getServiceIdStack();
-					if (serviceIdStack.contains(serviceId)) {
-						List<String> references = new LinkedList<>(serviceIdStack);
-						references.add(serviceId);
-						throw new IocException("Circular dependency reference detected %s", references);
+		if (service == null || service instanceof Realization || service instanceof AsyncResult) {
+			service = realize(registry);
+			if (service instanceof AsyncResult) {
+				try {
+					service = ((AsyncResult) service).future.join();
+				} catch (CompletionException e) {
+					throw AsyncServiceBuilderAdapter.unwrap(e, serviceId);
+				}
+			}
+		}
+		return service;
+	}
+	
+	public Object getIfRealized() {
+		Object service = reference.get();
+		return service instanceof Realization || service instanceof AsyncResult ? null : service;
+	}
+	
+	public CompletableFuture<Object> getAsync(ServiceRegistryImpl registry) {
+		Object service = reference.get();
+		if (service == null || service instanceof Realization) {
+			try {
+				service = realize(registry);
+			} catch (RuntimeException e) {
+				CompletableFuture<Object> failed = new CompletableFuture<>();
+				failed.completeExceptionally(e);
+				return failed;
+			}
+		}
+		if (service instanceof AsyncResult) {
+			// callers get a dependent stage so they can't complete the realization themselves
+			return ((AsyncResult) service).future.thenApply(Function.<Object>identity());
+		}
+		return CompletableFuture.completedFuture(service);
+	}
+	
+	protected Object realize(ServiceRegistryImpl registry) {
+		while (true) {
+			Object state = reference.get();
+			if (state != null && !(state instanceof Realization)) {
+				return state;
+			}
+			if (state != null && ((Realization) state).owner == Thread.currentThread()) {
+				throw new IocException("Circular dependency reference detected %s", getCurrentChain());
+			}
+			if (state == null) {
+				Realization realization = new Realization(serviceId, CURRENT.get());
+				if (reference.compareAndSet(null, realization)) {
+					Object service = build(registry, realization);
+					// after the realization is released so waiting threads aren't held up by the warm-up
+					if (!(service instanceof AsyncResult)) {
+						warmup(service, registry);
 					}
-					ServiceRegistryImpl registryWrapper = new ServiceRegistryImpl(registry, serviceId);
-					ServiceBuilderContextImpl context = new ServiceBuilderContextImpl(registryWrapper, serviceId, dependencies.serviceType);
-					context.setMappedContributions(buildMappedContributions(context));
-					context.setOrderedContributions(buildOrderedContributions(context));
-					context.setUnorderedContributions(buildUnorderedContributions(context));
-					T candidate = dependencies.builder.build(context);
-					if (dependencies.decorators != null) {
-						for (ServiceDecorator<T> decorator : dependencies.decorators) {
-							candidate = decorator.decorate(context, candidate);
-						}
+					return service;
+				}
+			} else {
+				await(registry, (Realization) state);
+			}
+		}
+	}
+	
+	protected Object build(ServiceRegistryImpl registry, Realization realization) {
+		boolean built = false;
+		ServiceAccessRecorder accessRecorder = registry.getAccessRecorder();
+		long start = accessRecorder == null ? 0L : System.nanoTime();
+		CURRENT.set(realization);
+		try {
+			ServiceBuilderContextImpl context = new ServiceBuilderContextImpl(registry, serviceId, dependencies.serviceType);
+			context.setMappedContributions(buildMappedContributions(context));
+			context.setOrderedContributions(buildOrderedContributions(context));
+			context.setUnorderedContributions(buildUnorderedContributions(context));
+			if (async) {
+				Object result = buildAsync(registry, context);
+				built = true;
+				return result;
+			}
+			T candidate = dependencies.builder.build(context);
+			if (dependencies.decorators != null) {
+				for (ServiceDecorator<T> decorator : dependencies.decorators) {
+					candidate = decorator.decorate(context, candidate);
+				}
+			}
+			Object service = candidate;
+			
+			releaseDependencies();
+			reference.set(service);
+			built = true;
+			if (accessRecorder != null) {
+				accessRecorder.recordRealization(serviceId, System.nanoTime() - start);
+			}
+			return service;
+		} finally {
+			if (!built) {
+				reference.set(null);
+			}
+			CURRENT.set(realization.parent);
+			realization.done.countDown();
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected AsyncResult buildAsync(final ServiceRegistryImpl registry, final ServiceBuilderContext context) {
+		final List<ServiceDecorator<T>> decorators = dependencies.decorators;
+		AsyncServiceBuilderAdapter<T> adapter = (AsyncServiceBuilderAdapter<T>) dependencies.builder;
+		CompletableFuture<Object> future = adapter.getAsyncServiceBuilder().build(context).toCompletableFuture().thenApply(new Function<T, Object>() {
+			@Override
+			public Object apply(T candidate) {
+				if (decorators != null) {
+					for (ServiceDecorator<T> decorator : decorators) {
+						candidate = decorator.decorate(context, candidate);
 					}
-					service = candidate;
-					reference.set(service);
-					
-					// allow dependencies to be garbage collected
-					dependencies = null;
 				}
+				return candidate;
 			}
+		});
+		final AsyncResult result = new AsyncResult(future);
+		reference.set(result);
+		future.whenComplete(new BiConsumer<Object, Throwable>() {
+			@Override
+			public void accept(Object service, Throwable error) {
+				if (error == null) {
+					releaseDependencies();
+				}
+				reference.compareAndSet(result, error == null ? service : null);
+				if (error == null) {
+					warmup(service, registry);
+				}
+			}
+		});
+		return result;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public void setWarmup(ServiceWarmup<?> warmup, int warmupIterations) {
+		this.warmup = (ServiceWarmup<Object>) warmup;
+		this.warmupIterations = warmupIterations;
+		this.warmedUp = new CompletableFuture<>();
+	}
+	
+	protected void warmup(final Object service, ServiceRegistryImpl registry) {
+		if (warmup == null) {
+			return;
 		}
-		return service;
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < warmupIterations; ++i) {
+						warmup.warmup(service);
+					}
+					warmedUp.complete(null);
+				} catch (RuntimeException e) {
+					warmedUp.completeExceptionally(new IocException(e, "Error warming up '%s'", serviceId));
+				}
+			}
+		};
+		Executor warmupExecutor = registry.getWarmupExecutor();
+		if (warmupExecutor == null) {
+			task.run();
+		} else {
+			try {
+				warmupExecutor.execute(task);
+			} catch (RejectedExecutionException e) {
+				task.run();
+			}
+		}
+	}
+	
+	public CompletableFuture<Void> getWarmedUp() {
+		return warmedUp;
+	}
+	
+	// allow dependencies to be garbage collected, keeping what the dependency graph needs
+	protected synchronized void releaseDependencies() {
+		if (declaredDependencies == null) {
+			declaredDependencies = declareDependencies(dependencies);
+		}
+		dependencies = null;
 	}
 	
-	public void init(ServiceRegistryImpl registry) {
-		if (eagerLoad) {
-			get(registry);
+	public synchronized DeclaredDependencies getDeclaredDependencies() {
+		if (declaredDependencies == null) {
+			declaredDependencies = declareDependencies(dependencies);
 		}
+		return declaredDependencies;
+	}
+	
+	protected DeclaredDependencies declareDependencies(ServiceDependencies dependencies) {
+		DeclaredDependencies declared = new DeclaredDependencies();
+		declared.add(dependencies.builder, serviceId, serviceType);
+		declared.addAll(dependencies.decorators, serviceId, serviceType);
+		declared.addAll(dependencies.unorderedContributions, serviceId, serviceType);
+		declared.addAll(dependencies.orderedContributions, serviceId, serviceType);
+		declared.addAll(dependencies.mappedContributions, serviceId, serviceType);
+		return declared;
+	}
+	
+	protected List<String> getCurrentChain() {
+		Realization current = CURRENT.get();
+		List<String> chain = current == null ? new LinkedList<String>() : current.getServiceIdStack();
+		chain.add(serviceId);
+		return chain;
+	}
+	
+	protected void await(ServiceRegistryImpl registry, Realization realization) {
+		Thread current = Thread.currentThread();
+		ConcurrentMap<Thread, ServiceReference<?>> waits = registry.getRealizationWaits();
+		waits.put(current, this);
+		try {
+			checkDeadlock(registry, realization, waits);
+			realization.done.await();
+		} catch (InterruptedException e) {
+			current.interrupt();
+			throw new IocException(e, "Interrupted waiting for serviceId '%s'", serviceId);
+		} finally {
+			waits.remove(current);
+		}
+	}
+	
+	// follows owner -> awaited service -> owner through the wait-for map, only reached under contention
+	protected void checkDeadlock(ServiceRegistryImpl registry, Realization realization, ConcurrentMap<Thread, ServiceReference<?>> waits) {
+		Thread current = Thread.currentThread();
+		Realization blocking = realization;
+		for (int i = 0, max = waits.size(); blocking != null && i <= max; ++i) {
+			ServiceReference<?> awaited = waits.get(blocking.owner);
+			if (awaited == null) {
+				return;
+			}
+			Object state = awaited.reference.get();
+			Realization next = state instanceof Realization ? (Realization) state : null;
+			if (next != null && next.owner == current) {
+				List<String> currentChain = getCurrentChain();
+				ServiceReference<?> ownerAwaits = waits.get(realization.owner);
+				List<String> ownerChain = realization.getServiceIdStack();
+				if (ownerAwaits != null) {
+					ownerChain.add(ownerAwaits.serviceId);
+				}
+				throw new IocException("Circular dependency across threads detected, thread '%s' %s and thread '%s' %s", 
+						current.getName(), currentChain, realization.owner.getName(), ownerChain);
+			}
+			blocking = next;
+		}
+	}
+	
+	public CompletableFuture<Object> init(ServiceRegistryImpl registry) {
+		if (!eagerLoad) {
+			return null;
+		}
+		if (async) {
+			return getAsync(registry);
+		}
+		get(registry);
+		return null;
 	}
 	
 	@SuppressWarnings({ "rawtypes", "unchecked" })
@@ -165,7 +440,19 @@ public class ServiceReference<T> {
 		return Collections.unmodifiableMap(values);
 	}
 
+	public boolean isAsync() {
+		return async;
+	}
+	
+	public boolean isEagerLoad() {
+		return eagerLoad;
+	}
+	
 	public String getServiceId() {
 		return serviceId;
 	}
+	
+	public Class<T> getServiceType() {
+		return serviceType;
+	}
 }
\ No newline at end of file
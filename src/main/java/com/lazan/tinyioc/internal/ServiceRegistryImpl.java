@@ -1,27 +1,41 @@
 package com.lazan.tinyioc.internal;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.lazan.tinyioc.Autobuilder;
+import com.lazan.tinyioc.DependencyGraph;
+import com.lazan.tinyioc.ExecutorSource;
 import com.lazan.tinyioc.IocException;
-import com.lazan.tinyioc.MappedContributor;
-import com.lazan.tinyioc.OrderedContributor;
+import com.lazan.tinyioc.ServiceAccessRecorder;
 import com.lazan.tinyioc.ServiceBinder;
 import com.lazan.tinyioc.ServiceBuilder;
 import com.lazan.tinyioc.ServiceBuilderContext;
-import com.lazan.tinyioc.ServiceDecorator;
+import com.lazan.tinyioc.ServiceHandle;
 import com.lazan.tinyioc.ServiceModule;
 import com.lazan.tinyioc.ServiceRegistry;
-import com.lazan.tinyioc.UnorderedContributor;
 
 public class ServiceRegistryImpl implements ServiceRegistry {
-	private static ServiceModule DEFAULT_MODULE = new ServiceModule() {
+	static final ServiceModule DEFAULT_MODULE = new ServiceModule() {
 		@Override
 		public void bind(ServiceBinder binder) {
 			binder.bind(Autobuilder.class, new ServiceBuilder<Autobuilder>() {
@@ -30,163 +44,333 @@ public class ServiceRegistryImpl implements ServiceRegistry {
 					return new AutobuilderImpl();
 				}
 			});
+			binder.bind(ExecutorSource.class, new ServiceBuilder<ExecutorSource>() {
+				@SuppressWarnings("unchecked")
+				@Override
+				public ExecutorSource build(ServiceBuilderContext context) {
+					return new ExecutorSourceImpl(context.getMappedContributions());
+				}
+			});
 		}
 	};
-	private final Set<String> idStack;
-	private final Map<String, ServiceReference<?>> referencesById;
-	private final Map<Class<?>, List<ServiceReference<?>>> referencesByType;
+	private final ServiceRegistryImpl parent;
+	private final Object extendLock = new Object();
+	private final boolean validate;
+	private final Map<String, String> properties;
+	private volatile Snapshot snapshot;
+	private final ConcurrentMap<Thread, ServiceReference<?>> realizationWaits;
+	private volatile CompletableFuture<Void> ready;
+	private volatile CompletableFuture<Void> readiness;
+	private final ServiceAccessRecorder accessRecorder;
+	private final Executor warmupExecutor;
 	
 	public ServiceRegistryImpl(Iterable<ServiceModule> modules) {
+		this(modules, new ServiceRegistryOptions());
+	}
+	
+	public ServiceRegistryImpl(Iterable<ServiceModule> modules, Executor classPreloader) {
+		this(modules, createOptions(classPreloader));
+	}
+	
+	private static ServiceRegistryOptions createOptions(Executor classPreloader) {
+		ServiceRegistryOptions options = new ServiceRegistryOptions();
+		options.setClassPreloader(classPreloader);
+		return options;
+	}
+	
+	public ServiceRegistryImpl(Iterable<ServiceModule> modules, ServiceRegistryOptions registryOptions) {
+		this(new ServiceRegistryTemplateImpl(modules, registryOptions));
+	}
+	
+	public ServiceRegistryImpl(ServiceRegistryTemplateImpl template) {
+		ServiceRegistryOptions registryOptions = template.getOptions();
+		parent = template.getParent();
 		Map<String, ServiceReference<?>> _referencesById = new LinkedHashMap<>();
-		Map<Class<?>, List<ServiceReference<?>>> _referencesByType = new LinkedHashMap<>();
-		
-		ServiceBinderImpl binder = new ServiceBinderImpl();
-		
-		DEFAULT_MODULE.bind(binder);
-		for (ServiceModule module : modules) {
-			module.bind(binder);
+		for (ServiceDefinition<?> definition : template.getDefinitions()) {
+			_referencesById.put(definition.getServiceId(), definition.newReference());
 		}
-		
-		Map<String, ServiceBinderOptionsImpl> overrideMap = createOverrideMap(binder);
-		Map<String, List<ServiceDecoratorOptionsImpl>> decoratorMap = createDecoratorMap(binder);
-		
-		for (ServiceBinderOptionsImpl candidate : binder.getBindList()) {
-			String serviceId = getServiceId(candidate);
-			Class<?> serviceType = candidate.getServiceType();
-			if (_referencesById.containsKey(serviceId)) {
-				throw new IocException("Duplicate serviceId '%s'", serviceId);
-			}
-			ServiceBinderOptionsImpl override = overrideMap.get(serviceId);
-			if (override != null) {
-				if (!override.getServiceType().equals(candidate.getServiceType())) {
-					throw new IocException("Invalid override for serviceId '%s' (expected serviceType %s, found %s)", 
-							serviceId, candidate.getServiceType().getName(), override.getServiceType().getName());
-				}
-			}
-			ServiceBinderOptionsImpl options = override == null ? candidate : override;
-			List<ServiceDecorator<?>> decorators = buildServiceDecorators(serviceId, serviceType, decoratorMap);
-			List<UnorderedContributor<?>> unorderedContributions = binder.getUnorderedContributors().get(serviceId);
-			List<OrderedContributor<?>> orderedContributions = binder.getOrderedContributors().get(serviceId);
-			List<MappedContributor<?, ?>> mappedContributions = binder.getMappedContributors().get(serviceId);
+		snapshot = new Snapshot(_referencesById);
+		validate = registryOptions.isValidate();
+		properties = registryOptions.getProperties();
+		realizationWaits = new ConcurrentHashMap<>();
+		accessRecorder = registryOptions.getAccessRecorder();
+		warmupExecutor = registryOptions.getWarmupExecutor();
 
-			@SuppressWarnings({"unchecked", "rawtypes"})
-			ServiceReference<?> reference = new ServiceReference(
-					serviceId, serviceType, options.getServiceBuilder(), options.isEagerLoad(), decorators, 
-					unorderedContributions, orderedContributions, mappedContributions);
-			_referencesById.put(serviceId, reference);
-
-			List<ServiceReference<?>> referenceList = _referencesByType.get(serviceType);
-			if (referenceList == null) {
-				referenceList = new LinkedList<>();
-				_referencesByType.put(serviceType, referenceList);
+		List<CompletableFuture<Object>> eagerFutures;
+		Executor eagerLoader = registryOptions.getEagerLoader();
+		if (eagerLoader == null) {
+			eagerFutures = new LinkedList<>();
+			for (ServiceReference<?> reference : _referencesById.values()) {
+				CompletableFuture<Object> future = reference.init(this);
+				if (future != null) {
+					eagerFutures.add(future);
+				}
 			}
-			referenceList.add(reference);
+		} else {
+			eagerFutures = initParallel(eagerLoader);
 		}
-		
-		for (String serviceId : overrideMap.keySet()) {
-			if (!_referencesById.containsKey(serviceId)) {
-				throw new IocException("Attempted to override unknown serviceId '%s'", serviceId);
-			}
+		ready = CompletableFuture.allOf(eagerFutures.toArray(new CompletableFuture<?>[eagerFutures.size()]));
+		readiness = allReady(ready, _referencesById.values());
+		if (registryOptions.getPrewarmer() != null) {
+			prewarm(registryOptions.getPrewarmServiceIds(), registryOptions.getPrewarmer());
 		}
-		for (String serviceId : decoratorMap.keySet()) {
-			if (!_referencesById.containsKey(serviceId)) {
-				throw new IocException("Attempted to decorate unknown serviceId '%s'", serviceId);
+	}
+	
+	protected static CompletableFuture<Void> allReady(CompletableFuture<Void> ready, Collection<ServiceReference<?>> references) {
+		List<CompletableFuture<?>> readinessFutures = new LinkedList<>();
+		readinessFutures.add(ready);
+		for (ServiceReference<?> reference : references) {
+			if (reference.isEagerLoad() && reference.getWarmedUp() != null) {
+				readinessFutures.add(reference.getWarmedUp());
 			}
 		}
-		
-		idStack = Collections.emptySet();
-		referencesById = Collections.unmodifiableMap(_referencesById);
-		referencesByType = Collections.unmodifiableMap(_referencesByType);
-
-		for (ServiceReference<?> reference : referencesById.values()) {
-			reference.init(this);
+		return CompletableFuture.allOf(readinessFutures.toArray(new CompletableFuture<?>[readinessFutures.size()]));
+	}
+	
+	protected void prewarm(List<String> serviceIds, Executor prewarmer) {
+		for (String serviceId : serviceIds) {
+			final ServiceReference<?> reference = snapshot.referencesById.get(serviceId);
+			if (reference == null) {
+				continue;
+			}
+			try {
+				prewarmer.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							reference.get(ServiceRegistryImpl.this);
+						} catch (RuntimeException e) {
+							// reported when the service is used
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				return;
+			}
 		}
 	}
 	
-	protected ServiceRegistryImpl(ServiceRegistryImpl registry, String serviceId) {
-		this.referencesById = registry.referencesById;
-		this.referencesByType = registry.referencesByType;
-		
-		Set<String> _idStack = new LinkedHashSet<>(registry.idStack);
-		_idStack.add(serviceId);
-		this.idStack = Collections.unmodifiableSet(_idStack);
-	}	
-
-	protected List<ServiceDecorator<?>> buildServiceDecorators(
-			String serviceId,
-			Class<?> serviceType, 
-			Map<String, List<ServiceDecoratorOptionsImpl>> decoratorMap)
-	{
-		List<ServiceDecoratorOptionsImpl> optionsList = decoratorMap.get(serviceId);
-		if (optionsList == null) {
-			return null;
-		}
-		List<ServiceDecorator<?>> decorators = new LinkedList<>();
-		for (ServiceDecoratorOptionsImpl options : optionsList) {
-			if (!options.getServiceType().equals(serviceType)) {
-				throw new IocException("Invalid decorator '%s' for serviceId '%s', expected %s found %s",
-						options.getDecoratorId(), serviceId, serviceType.getName(), options.getServiceType().getName());
+	// eager services are all submitted at once, a service whose dependency is being built on another 
+	// thread waits for that realization so startup approaches the longest dependency chain
+	protected List<CompletableFuture<Object>> initParallel(Executor eagerLoader) {
+		List<ServiceReference<?>> eagerReferences = new LinkedList<>();
+		for (ServiceReference<?> reference : snapshot.referencesById.values()) {
+			if (reference.isEagerLoad()) {
+				eagerReferences.add(reference);
+			}
+		}
+		final CountDownLatch done = new CountDownLatch(eagerReferences.size());
+		final Map<String, Throwable> failures = new ConcurrentHashMap<>();
+		final List<CompletableFuture<Object>> eagerFutures = Collections.synchronizedList(new LinkedList<CompletableFuture<Object>>());
+		for (final ServiceReference<?> reference : eagerReferences) {
+			Runnable task = new Runnable() {
+				@Override
+				public void run() {
+					try {
+						CompletableFuture<Object> future = reference.init(ServiceRegistryImpl.this);
+						if (future != null) {
+							eagerFutures.add(future);
+						}
+					} catch (Throwable e) {
+						failures.put(reference.getServiceId(), e);
+					} finally {
+						done.countDown();
+					}
+				}
+			};
+			try {
+				eagerLoader.execute(task);
+			} catch (RejectedExecutionException e) {
+				task.run();
 			}
-			decorators.add(options.getServiceDecorator());
 		}
-		return decorators;
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IocException(e, "Interrupted eager loading services");
+		}
+		if (!failures.isEmpty()) {
+			Set<String> serviceIds = new LinkedHashSet<>();
+			for (ServiceReference<?> reference : eagerReferences) {
+				if (failures.containsKey(reference.getServiceId())) {
+					serviceIds.add(reference.getServiceId());
+				}
+			}
+			IocException exception = new IocException("Error eager loading serviceIds %s", serviceIds);
+			for (String serviceId : serviceIds) {
+				exception.addSuppressed(failures.get(serviceId));
+			}
+			throw exception;
+		}
+		return eagerFutures;
 	}
-
-	protected Map<String, List<ServiceDecoratorOptionsImpl>> createDecoratorMap(ServiceBinderImpl binder) {
-		Map<String, List<ServiceDecoratorOptionsImpl>> decoratorMap = new LinkedHashMap<>();
-		for (ServiceDecoratorOptionsImpl decorateOptions : binder.getDecoratorList()) {
-			String serviceId = getServiceId(decorateOptions);
-			List<ServiceDecoratorOptionsImpl> list = decoratorMap.get(serviceId);
-			if (list == null) {
-				list = new LinkedList<>();
-				decoratorMap.put(serviceId, list);
+	
+	// bindings are published as a fresh snapshot, eager services of the extension are built before extend()
+	// returns. if one fails the previous snapshot is restored, other threads may see the extension's services
+	// in the meantime
+	@Override
+	public void extend(ServiceModule... modules) {
+		List<ServiceReference<?>> eagerReferences = new LinkedList<>();
+		synchronized (extendLock) {
+			Snapshot current = snapshot;
+			ServiceRegistryTemplateImpl extension = new ServiceRegistryTemplateImpl(Arrays.asList(modules), createChildOptions(), this, true);
+			Map<String, ServiceReference<?>> _referencesById = new LinkedHashMap<>(current.referencesById);
+			for (ServiceDefinition<?> definition : extension.getDefinitions()) {
+				ServiceReference<?> reference = definition.newReference();
+				_referencesById.put(definition.getServiceId(), reference);
+				if (reference.isEagerLoad()) {
+					eagerReferences.add(reference);
+				}
+			}
+			Snapshot extended = new Snapshot(_referencesById);
+			if (validate) {
+				new DependencyGraphImpl(extended.referencesById, extended.typeIndex).validate();
 			}
-			list.add(decorateOptions);
-		}
-		for (Map.Entry<String, List<ServiceDecoratorOptionsImpl>> entry : decoratorMap.entrySet()) {
-			String serviceId = entry.getKey();
-			List<ServiceDecoratorOptionsImpl> list = entry.getValue();
-			Set<String> decoratorIds = new LinkedHashSet<>();
-			for (ServiceDecoratorOptionsImpl options : list) {
-				if (!decoratorIds.add(options.getDecoratorId())) {
-					throw new IocException("Duplicate decoratorId '%s' for serviceId '%s'", options.getDecoratorId(), serviceId);
+			snapshot = extended;
+			List<CompletableFuture<?>> eagerFutures = new LinkedList<>();
+			eagerFutures.add(ready);
+			try {
+				for (ServiceReference<?> reference : eagerReferences) {
+					CompletableFuture<Object> future = reference.init(this);
+					if (future != null) {
+						eagerFutures.add(future);
+					}
 				}
+			} catch (RuntimeException | Error e) {
+				snapshot = current;
+				throw e;
 			}
-			Collections.sort(list);
+			CompletableFuture<Void> extendedReady = CompletableFuture.allOf(eagerFutures.toArray(new CompletableFuture<?>[eagerFutures.size()]));
+			readiness = allReady(CompletableFuture.allOf(extendedReady, readiness), eagerReferences);
+			ready = extendedReady;
 		}
-		return decoratorMap;
 	}
-
-	protected Map<String, ServiceBinderOptionsImpl> createOverrideMap(ServiceBinderImpl binder) {
-		Map<String, ServiceBinderOptionsImpl> overrideMap = new LinkedHashMap<>();
-		for (ServiceBinderOptionsImpl overrideOptions : binder.getOverrideList()) {
-			String serviceId = getServiceId(overrideOptions);
-			if (overrideMap.containsKey(serviceId)) {
-				throw new IocException("Duplicate override for serviceId '%s'", serviceId);
+	
+	@Override
+	public void shutdown() {
+		for (ServiceReference<?> reference : snapshot.referencesById.values()) {
+			Object service = reference.getIfRealized();
+			if (service instanceof ExecutorSource) {
+				((ExecutorSource) service).shutdown();
 			}
-			overrideMap.put(serviceId, overrideOptions);
 		}
-		return overrideMap;
 	}
-
+	
+	@Override
+	public ServiceRegistry createChild(ServiceModule... modules) {
+		return new ServiceRegistryTemplateImpl(Arrays.asList(modules), createChildOptions(), this).newRegistry();
+	}
+	
+	protected ServiceRegistryOptions createChildOptions() {
+		ServiceRegistryOptions childOptions = new ServiceRegistryOptions();
+		childOptions.addProperties(properties);
+		return childOptions;
+	}
+	
 	@Override
 	public <T> T getService(Class<T> serviceType) {
-		List<ServiceReference<?>> references = referencesByType.get(serviceType);
-		int count = references == null ? 0 : references.size();
+		return serviceType.cast(realize(getReference(serviceType)));
+	}
+	
+	@Override
+	public Object getService(String serviceId) {
+		return realize(getReference(serviceId));
+	}
+	
+	@Override
+	public <T> Optional<T> findService(Class<T> serviceType) {
+		List<ServiceReference<?>> references = findCandidates(serviceType);
+		if (references.isEmpty()) {
+			return Optional.empty();
+		}
+		return Optional.of(serviceType.cast(realize(getSingle(references, serviceType))));
+	}
+	
+	@Override
+	public <T> Optional<T> findService(String serviceId, Class<T> serviceType) {
+		ServiceReference<?> reference = findReference(serviceId);
+		if (reference == null || !isCompatible(reference, serviceType)) {
+			return Optional.empty();
+		}
+		Object service = realize(reference);
+		return serviceType.isInstance(service) ? Optional.of(serviceType.cast(service)) : Optional.<T>empty();
+	}
+	
+	@Override
+	public boolean containsService(Class<?> serviceType) {
+		return !snapshot.typeIndex.getCandidates(serviceType).isEmpty() || (parent != null && parent.containsService(serviceType));
+	}
+	
+	@Override
+	public boolean containsService(String serviceId) {
+		return findReference(serviceId) != null;
+	}
+	
+	protected ServiceRegistryImpl getOwner(ServiceReference<?> reference) {
+		ServiceRegistryImpl owner = this;
+		while (owner.parent != null && owner.snapshot.referencesById.get(reference.getServiceId()) != reference) {
+			owner = owner.parent;
+		}
+		return owner;
+	}
+	
+	Object realize(ServiceReference<?> reference) {
+		return reference.get(getOwner(reference));
+	}
+	
+	List<ServiceReference<?>> findCandidates(Class<?> serviceType) {
+		List<ServiceReference<?>> references = snapshot.typeIndex.getCandidates(serviceType);
+		if (references.isEmpty() && parent != null) {
+			return parent.findCandidates(serviceType);
+		}
+		return references;
+	}
+	
+	ServiceReference<?> findReference(String serviceId) {
+		ServiceReference<?> reference = snapshot.referencesById.get(serviceId);
+		if (reference == null && parent != null) {
+			return parent.findReference(serviceId);
+		}
+		return reference;
+	}
+	
+	@Override
+	public <T> ServiceHandle<T> handle(Class<T> serviceType) {
+		return new ServiceHandleImpl<>(this, getReference(serviceType), serviceType);
+	}
+	
+	@Override
+	public <T> ServiceHandle<T> handle(String serviceId, Class<T> serviceType) {
+		ServiceReference<?> reference = getReference(serviceId);
+		if (!isCompatible(reference, serviceType)) {
+			throw new IocException("Incompatible type for serviceId '%s'", serviceId);
+		}
+		return new ServiceHandleImpl<>(this, reference, serviceType);
+	}
+	
+	protected boolean isCompatible(ServiceReference<?> reference, Class<?> serviceType) {
+		return serviceType.isAssignableFrom(reference.getServiceType()) || reference.getServiceType().isAssignableFrom(serviceType);
+	}
+	
+	protected ServiceReference<?> getReference(Class<?> serviceType) {
+		return getSingle(findCandidates(serviceType), serviceType);
+	}
+	
+	protected ServiceReference<?> getSingle(List<ServiceReference<?>> references, Class<?> serviceType) {
+		int count = references.size();
 		if (count != 1) {
 			throw new IocException("Found %s services for serviceType '%s', expecting 1", count, serviceType.getName());
 		}
-		ServiceReference<?> reference = references.get(0);
-		return serviceType.cast(reference.get(this));
+		return references.get(0);
 	}
 	
-	@Override
-	public Object getService(String serviceId) {
-		ServiceReference<?> reference = referencesById.get(serviceId);
+	protected ServiceReference<?> getReference(String serviceId) {
+		ServiceReference<?> reference = findReference(serviceId);
 		if (reference == null) {
 			throw new IocException("No service found for serviceId '%s'", serviceId);
 		}
-		return reference.get(this);
+		return reference;
 	}
 	
 	@Override
@@ -198,25 +382,95 @@ public class ServiceRegistryImpl implements ServiceRegistry {
 		}
 	}
 	
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> CompletionStage<T> getServiceAsync(Class<T> serviceType) {
+		ServiceReference<?> reference = getReference(serviceType);
+		return (CompletionStage<T>) reference.getAsync(getOwner(reference));
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> CompletionStage<T> getServiceAsync(String serviceId, Class<T> serviceType) {
+		ServiceReference<?> reference = getReference(serviceId);
+		if (!isCompatible(reference, serviceType)) {
+			throw new IocException("Incompatible type for serviceId '%s'", serviceId);
+		}
+		return (CompletionStage<T>) reference.getAsync(getOwner(reference));
+	}
+	
+	@Override
+	public CompletionStage<Void> ready() {
+		return ready.thenApply(Function.<Void>identity());
+	}
+	
+	@Override
+	public CompletionStage<Void> readiness() {
+		return readiness.thenApply(Function.<Void>identity());
+	}
+	
+	@SuppressWarnings("unchecked")
 	@Override
 	public <T> Map<String, T> getServices(Class<T> serviceType) {
-		Map<String, T> services = new LinkedHashMap<>();
-		List<ServiceReference<?>> references = referencesByType.get(serviceType);
-		for (ServiceReference<?> reference : references) {
-			T service = serviceType.cast(reference.get(this));
-			services.put(reference.getServiceId(), service);
+		if (parent != null) {
+			// the parent may be extended, so a child's merged view isn't cached
+			return new LazyServiceMap<>(this, serviceType, getAssignable(serviceType));
+		}
+		ConcurrentMap<Class<?>, Map<String, ?>> servicesByType = snapshot.servicesByType;
+		Map<String, T> services = (Map<String, T>) servicesByType.get(serviceType);
+		if (services == null) {
+			services = new LazyServiceMap<>(this, serviceType, getAssignable(serviceType));
+			Map<String, T> existing = (Map<String, T>) servicesByType.putIfAbsent(serviceType, services);
+			if (existing != null) {
+				services = existing;
+			}
+		}
+		return services;
+	}
+	
+	@Override
+	public <T> Stream<T> streamServices(final Class<T> serviceType) {
+		List<ServiceReference<?>> references = getAssignable(serviceType);
+		return StreamSupport.stream(references.spliterator(), false).map(new Function<ServiceReference<?>, T>() {
+			@Override
+			public T apply(ServiceReference<?> reference) {
+				return serviceType.cast(realize(reference));
+			}
+		});
+	}
+	
+	protected List<ServiceReference<?>> getAssignable(Class<?> serviceType) {
+		if (parent == null) {
+			return snapshot.typeIndex.getAssignable(serviceType);
+		}
+		Map<String, ServiceReference<?>> assignable = new LinkedHashMap<>();
+		for (ServiceReference<?> reference : parent.getAssignable(serviceType)) {
+			assignable.put(reference.getServiceId(), reference);
 		}
-		return Collections.unmodifiableMap(services);
+		for (ServiceReference<?> reference : snapshot.typeIndex.getAssignable(serviceType)) {
+			assignable.put(reference.getServiceId(), reference);
+		}
+		return new ArrayList<>(assignable.values());
 	}
 	
 	@Override
 	public Set<String> getServiceIds() {
-		return referencesById.keySet();
+		if (parent == null) {
+			return snapshot.referencesById.keySet();
+		}
+		Set<String> serviceIds = new LinkedHashSet<>(parent.getServiceIds());
+		serviceIds.addAll(snapshot.referencesById.keySet());
+		return Collections.unmodifiableSet(serviceIds);
 	}
 	
 	@Override
 	public Set<Class<?>> getServiceTypes() {
-		return referencesByType.keySet();
+		if (parent == null) {
+			return snapshot.typeIndex.getServiceTypes();
+		}
+		Set<Class<?>> serviceTypes = new LinkedHashSet<>(parent.getServiceTypes());
+		serviceTypes.addAll(snapshot.typeIndex.getServiceTypes());
+		return Collections.unmodifiableSet(serviceTypes);
 	}
 	
 	@Override
@@ -224,24 +478,50 @@ public class ServiceRegistryImpl implements ServiceRegistry {
 		return getService(Autobuilder.class).autobuild(this, concreteType);
 	}
 	
-	public Set<String> getServiceIdStack() {
-		return idStack;
-	}
-
-	protected String getServiceId(ServiceBinderOptionsImpl options) {
-		if (options.getServiceId() != null) {
-			return options.getServiceId();
+	@Override
+	public DependencyGraph getDependencyGraph() {
+		Snapshot current = snapshot;
+		DependencyGraph graph = current.dependencyGraph;
+		if (graph == null) {
+			if (parent == null) {
+				graph = new DependencyGraphImpl(current.referencesById, current.typeIndex);
+			} else {
+				graph = new DependencyGraphImpl(getAssignable(Object.class), this);
+			}
+			current.dependencyGraph = graph;
 		}
-		return getDefaultServiceId(options.getServiceType());
+		return graph;
 	}
 	
-	protected String getServiceId(ServiceDecoratorOptionsImpl options) {
-		if (options.getServiceId() != null) {
-			return options.getServiceId();
+	// lookup state replaced as a whole by extend(), readers see either the old or the new bindings
+	private static class Snapshot {
+		private final Map<String, ServiceReference<?>> referencesById;
+		private final ServiceTypeIndex typeIndex;
+		private final ConcurrentMap<Class<?>, Map<String, ?>> servicesByType = new ConcurrentHashMap<>();
+		private volatile DependencyGraph dependencyGraph;
+		
+		public Snapshot(Map<String, ServiceReference<?>> referencesById) {
+			this.referencesById = Collections.unmodifiableMap(referencesById);
+			this.typeIndex = new ServiceTypeIndex(referencesById.values());
 		}
-		return getDefaultServiceId(options.getServiceType());
 	}
 	
+	Executor getWarmupExecutor() {
+		return warmupExecutor;
+	}
+	
+	ServiceAccessRecorder getAccessRecorder() {
+		return accessRecorder;
+	}
+	
+	ConcurrentMap<Thread, ServiceReference<?>> getRealizationWaits() {
+		return realizationWaits;
+	}
+	
+	public Set<String> getServiceIdStack() {
+		return ServiceReference.getServiceIdStack();
+	}
+
 	static String getDefaultServiceId(Class<?> serviceType) {
 		String simpleName = serviceType.getSimpleName();
 		return Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
@@ -0,0 +1,98 @@
+package com.lazan.tinyioc.internal;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import com.lazan.tinyioc.ServiceAccessRecorder;
+
+public class ServiceRegistryOptions {
+	private Executor classPreloader;
+	private Executor eagerLoader;
+	private boolean validate;
+	private ServiceAccessRecorder accessRecorder;
+	private List<String> prewarmServiceIds = Collections.emptyList();
+	private Executor prewarmer;
+	private Executor warmupExecutor;
+	private Map<String, String> properties = Collections.emptyMap();
+	
+	public ServiceRegistryOptions() {
+		super();
+	}
+	
+	public ServiceRegistryOptions(ServiceRegistryOptions other) {
+		this.classPreloader = other.classPreloader;
+		this.eagerLoader = other.eagerLoader;
+		this.validate = other.validate;
+		this.accessRecorder = other.accessRecorder;
+		this.prewarmServiceIds = other.prewarmServiceIds;
+		this.prewarmer = other.prewarmer;
+		this.warmupExecutor = other.warmupExecutor;
+		this.properties = other.properties;
+	}
+	
+	public Map<String, String> getProperties() {
+		return properties;
+	}
+	
+	public void addProperties(Map<String, String> properties) {
+		Map<String, String> _properties = new LinkedHashMap<>(this.properties);
+		_properties.putAll(properties);
+		this.properties = Collections.unmodifiableMap(_properties);
+	}
+	
+	public Executor getClassPreloader() {
+		return classPreloader;
+	}
+	
+	public void setClassPreloader(Executor classPreloader) {
+		this.classPreloader = classPreloader;
+	}
+	
+	public Executor getEagerLoader() {
+		return eagerLoader;
+	}
+	
+	public void setEagerLoader(Executor eagerLoader) {
+		this.eagerLoader = eagerLoader;
+	}
+	
+	public boolean isValidate() {
+		return validate;
+	}
+	
+	public void setValidate(boolean validate) {
+		this.validate = validate;
+	}
+	
+	public ServiceAccessRecorder getAccessRecorder() {
+		return accessRecorder;
+	}
+	
+	public void setAccessRecorder(ServiceAccessRecorder accessRecorder) {
+		this.accessRecorder = accessRecorder;
+	}
+	
+	public List<String> getPrewarmServiceIds() {
+		return prewarmServiceIds;
+	}
+	
+	public Executor getPrewarmer() {
+		return prewarmer;
+	}
+	
+	public Executor getWarmupExecutor() {
+		return warmupExecutor;
+	}
+	
+	public void setWarmupExecutor(Executor warmupExecutor) {
+		this.warmupExecutor = warmupExecutor;
+	}
+	
+	public void setPrewarming(List<String> prewarmServiceIds, Executor prewarmer) {
+		this.prewarmServiceIds = prewarmServiceIds;
+		this.prewarmer = prewarmer;
+	}
+}
@@ -0,0 +1,314 @@
+package com.lazan.tinyioc.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.lazan.tinyioc.IocException;
+import com.lazan.tinyioc.MappedContributor;
+import com.lazan.tinyioc.OrderedContributor;
+import com.lazan.tinyioc.ServiceDecorator;
+import com.lazan.tinyioc.ServiceModule;
+import com.lazan.tinyioc.ServiceRegistry;
+import com.lazan.tinyioc.ServiceRegistryTemplate;
+import com.lazan.tinyioc.UnorderedContributor;
+
+public class ServiceRegistryTemplateImpl implements ServiceRegistryTemplate {
+	private final ServiceRegistryOptions options;
+	private final List<ServiceDefinition<?>> definitions;
+	private final ServiceRegistryImpl parent;
+	
+	public ServiceRegistryTemplateImpl(Iterable<ServiceModule> modules, ServiceRegistryOptions registryOptions) {
+		this(modules, registryOptions, null);
+	}
+	
+	public ServiceRegistryTemplateImpl(Iterable<ServiceModule> modules, ServiceRegistryOptions registryOptions, ServiceRegistryImpl parent) {
+		this(modules, registryOptions, parent, false);
+	}
+	
+	public ServiceRegistryTemplateImpl(Iterable<ServiceModule> modules, ServiceRegistryOptions registryOptions, ServiceRegistryImpl parent, boolean extension) {
+		this.options = new ServiceRegistryOptions(registryOptions);
+		this.parent = parent;
+		Map<String, ServiceDefinition<?>> _definitionsById = new LinkedHashMap<>();
+		
+		ServiceBinderImpl binder = new ServiceBinderImpl(registryOptions.getClassPreloader());
+		
+		if (parent == null) {
+			ServiceRegistryImpl.DEFAULT_MODULE.bind(binder);
+		}
+		for (ServiceModule module : modules) {
+			module.bind(binder);
+		}
+		
+		List<ServiceBinderOptionsImpl> bindList = binder.getBindList();
+		List<ServiceBinderOptionsImpl> overrideList = binder.getOverrideList();
+		Set<String> droppedIds = Collections.emptySet();
+		if (hasConditions(bindList) || hasConditions(overrideList)) {
+			droppedIds = new LinkedHashSet<>();
+			ConditionContextImpl conditionContext = new ConditionContextImpl(options.getProperties(), parent);
+			bindList = filterBindings(bindList, conditionContext, droppedIds);
+			overrideList = filterOverrides(overrideList, conditionContext, droppedIds);
+		}
+		Map<String, ServiceBinderOptionsImpl> overrideMap = createOverrideMap(overrideList);
+		Map<String, List<ServiceDecoratorOptionsImpl>> decoratorMap = createDecoratorMap(binder);
+		decoratorMap.keySet().removeAll(droppedIds);
+		if (extension) {
+			checkExtension(binder, overrideMap, decoratorMap);
+		}
+		
+		for (ServiceBinderOptionsImpl candidate : bindList) {
+			String serviceId = getServiceId(candidate);
+			if (_definitionsById.containsKey(serviceId) || findParentReference(serviceId) != null) {
+				throw new IocException("Duplicate serviceId '%s'", serviceId);
+			}
+			ServiceBinderOptionsImpl override = overrideMap.get(serviceId);
+			if (override != null) {
+				checkOverride(serviceId, candidate.getServiceType(), override);
+			}
+			ServiceBinderOptionsImpl options = override == null ? candidate : override;
+			_definitionsById.put(serviceId, createDefinition(serviceId, candidate.getServiceType(), options, binder, decoratorMap));
+		}
+		
+		for (Map.Entry<String, ServiceBinderOptionsImpl> entry : overrideMap.entrySet()) {
+			String serviceId = entry.getKey();
+			if (!_definitionsById.containsKey(serviceId)) {
+				ServiceReference<?> parentReference = findParentReference(serviceId);
+				if (parentReference == null) {
+					throw new IocException("Attempted to override unknown serviceId '%s'", serviceId);
+				}
+				checkOverride(serviceId, parentReference.getServiceType(), entry.getValue());
+				_definitionsById.put(serviceId, createDefinition(serviceId, parentReference.getServiceType(), entry.getValue(), binder, decoratorMap));
+			}
+		}
+		for (String serviceId : decoratorMap.keySet()) {
+			if (!_definitionsById.containsKey(serviceId)) {
+				ServiceReference<?> parentReference = findParentReference(serviceId);
+				if (parentReference == null) {
+					throw new IocException("Attempted to decorate unknown serviceId '%s'", serviceId);
+				}
+				Class<?> serviceType = parentReference.getServiceType();
+				@SuppressWarnings({"unchecked", "rawtypes"})
+				ServiceDefinition<?> definition = new ServiceDefinition(
+						serviceId, serviceType, new ParentServiceBuilder(parent, serviceId, serviceType), false, 
+						buildServiceDecorators(serviceId, serviceType, decoratorMap), null, null, null, null, 0);
+				_definitionsById.put(serviceId, definition);
+			}
+		}
+		
+		definitions = Collections.unmodifiableList(new ArrayList<>(_definitionsById.values()));
+		// after overrides and conditions so only the bindings which are kept are preloaded
+		for (ServiceDefinition<?> definition : definitions) {
+			if (definition.isEagerLoad() && definition.getBuilder() instanceof ClassNameServiceBuilder) {
+				((ClassNameServiceBuilder<?>) definition.getBuilder()).preload();
+			}
+		}
+		if (options.isValidate()) {
+			validate();
+		}
+	}
+	
+	protected boolean hasConditions(List<ServiceBinderOptionsImpl> optionsList) {
+		for (ServiceBinderOptionsImpl options : optionsList) {
+			if (options.isConditional()) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	// unconditional bindings are visible to every condition, conditional ones once accepted (in binding order)
+	protected List<ServiceBinderOptionsImpl> filterBindings(List<ServiceBinderOptionsImpl> bindList, ConditionContextImpl context, Set<String> droppedIds) {
+		for (ServiceBinderOptionsImpl options : bindList) {
+			if (!options.isConditional()) {
+				context.addService(getServiceId(options), options.getServiceType());
+			}
+		}
+		List<ServiceBinderOptionsImpl> accepted = new ArrayList<>(bindList.size());
+		for (ServiceBinderOptionsImpl options : bindList) {
+			if (!options.isConditional()) {
+				accepted.add(options);
+			} else if (options.matches(context)) {
+				accepted.add(options);
+				context.addService(getServiceId(options), options.getServiceType());
+			} else {
+				droppedIds.add(getServiceId(options));
+			}
+		}
+		for (ServiceBinderOptionsImpl options : accepted) {
+			droppedIds.remove(getServiceId(options));
+		}
+		return accepted;
+	}
+	
+	protected List<ServiceBinderOptionsImpl> filterOverrides(List<ServiceBinderOptionsImpl> overrideList, ConditionContextImpl context, Set<String> droppedIds) {
+		List<ServiceBinderOptionsImpl> accepted = new ArrayList<>(overrideList.size());
+		for (ServiceBinderOptionsImpl options : overrideList) {
+			if (!droppedIds.contains(getServiceId(options)) && options.matches(context)) {
+				accepted.add(options);
+			}
+		}
+		return accepted;
+	}
+	
+	protected ServiceDefinition<?> createDefinition(String serviceId, Class<?> serviceType, ServiceBinderOptionsImpl options,
+			ServiceBinderImpl binder, Map<String, List<ServiceDecoratorOptionsImpl>> decoratorMap) 
+	{
+		List<ServiceDecorator<?>> decorators = buildServiceDecorators(serviceId, serviceType, decoratorMap);
+		List<UnorderedContributor<?>> unorderedContributions = binder.getUnorderedContributors().get(serviceId);
+		List<OrderedContributor<?>> orderedContributions = binder.getOrderedContributors().get(serviceId);
+		List<MappedContributor<?, ?>> mappedContributions = binder.getMappedContributors().get(serviceId);
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		ServiceDefinition<?> definition = new ServiceDefinition(
+				serviceId, serviceType, options.getServiceBuilder(), options.isEagerLoad(), decorators, 
+				unorderedContributions, orderedContributions, mappedContributions,
+				options.getWarmup(), options.getWarmupIterations());
+		return definition;
+	}
+	
+	protected void checkOverride(String serviceId, Class<?> serviceType, ServiceBinderOptionsImpl override) {
+		if (!override.getServiceType().equals(serviceType)) {
+			throw new IocException("Invalid override for serviceId '%s' (expected serviceType %s, found %s)", 
+					serviceId, serviceType.getName(), override.getServiceType().getName());
+		}
+	}
+	
+	protected void checkExtension(ServiceBinderImpl binder, Map<String, ServiceBinderOptionsImpl> overrideMap, 
+			Map<String, List<ServiceDecoratorOptionsImpl>> decoratorMap) 
+	{
+		for (String serviceId : overrideMap.keySet()) {
+			if (findParentReference(serviceId) != null) {
+				throw new IocException("Cannot override existing serviceId '%s' of a live registry", serviceId);
+			}
+		}
+		for (String serviceId : decoratorMap.keySet()) {
+			if (findParentReference(serviceId) != null) {
+				throw new IocException("Cannot decorate existing serviceId '%s' of a live registry", serviceId);
+			}
+		}
+		Set<String> contributedIds = new LinkedHashSet<>();
+		contributedIds.addAll(binder.getUnorderedContributors().keySet());
+		contributedIds.addAll(binder.getOrderedContributors().keySet());
+		contributedIds.addAll(binder.getMappedContributors().keySet());
+		for (String serviceId : contributedIds) {
+			if (findParentReference(serviceId) != null) {
+				throw new IocException("Cannot contribute to existing serviceId '%s' of a live registry", serviceId);
+			}
+		}
+	}
+	
+	protected ServiceReference<?> findParentReference(String serviceId) {
+		return parent == null ? null : parent.findReference(serviceId);
+	}
+	
+	protected void validate() {
+		Map<String, ServiceReference<?>> referencesById = new LinkedHashMap<>();
+		for (ServiceDefinition<?> definition : definitions) {
+			referencesById.put(definition.getServiceId(), definition.newReference());
+		}
+		new DependencyGraphImpl(referencesById, new ServiceTypeIndex(referencesById.values())).validate();
+	}
+	
+	@Override
+	public ServiceRegistry newRegistry() {
+		return new ServiceRegistryImpl(this);
+	}
+	
+	@Override
+	public Set<String> getServiceIds() {
+		Set<String> serviceIds = new LinkedHashSet<>();
+		for (ServiceDefinition<?> definition : definitions) {
+			serviceIds.add(definition.getServiceId());
+		}
+		return Collections.unmodifiableSet(serviceIds);
+	}
+	
+	public List<ServiceDefinition<?>> getDefinitions() {
+		return definitions;
+	}
+	
+	public ServiceRegistryImpl getParent() {
+		return parent;
+	}
+	
+	public ServiceRegistryOptions getOptions() {
+		return options;
+	}
+	
+	protected List<ServiceDecorator<?>> buildServiceDecorators(
+			String serviceId,
+			Class<?> serviceType, 
+			Map<String, List<ServiceDecoratorOptionsImpl>> decoratorMap)
+	{
+		List<ServiceDecoratorOptionsImpl> optionsList = decoratorMap.get(serviceId);
+		if (optionsList == null) {
+			return null;
+		}
+		List<ServiceDecorator<?>> decorators = new LinkedList<>();
+		for (ServiceDecoratorOptionsImpl options : optionsList) {
+			if (!options.getServiceType().equals(serviceType)) {
+				throw new IocException("Invalid decorator '%s' for serviceId '%s', expected %s found %s",
+						options.getDecoratorId(), serviceId, serviceType.getName(), options.getServiceType().getName());
+			}
+			decorators.add(options.getServiceDecorator());
+		}
+		return decorators;
+	}
+
+	protected Map<String, List<ServiceDecoratorOptionsImpl>> createDecoratorMap(ServiceBinderImpl binder) {
+		Map<String, List<ServiceDecoratorOptionsImpl>> decoratorMap = new LinkedHashMap<>();
+		for (ServiceDecoratorOptionsImpl decorateOptions : binder.getDecoratorList()) {
+			String serviceId = getServiceId(decorateOptions);
+			List<ServiceDecoratorOptionsImpl> list = decoratorMap.get(serviceId);
+			if (list == null) {
+				list = new LinkedList<>();
+				decoratorMap.put(serviceId, list);
+			}
+			list.add(decorateOptions);
+		}
+		for (Map.Entry<String, List<ServiceDecoratorOptionsImpl>> entry : decoratorMap.entrySet()) {
+			String serviceId = entry.getKey();
+			List<ServiceDecoratorOptionsImpl> list = entry.getValue();
+			Set<String> decoratorIds = new LinkedHashSet<>();
+			for (ServiceDecoratorOptionsImpl options : list) {
+				if (!decoratorIds.add(options.getDecoratorId())) {
+					throw new IocException("Duplicate decoratorId '%s' for serviceId '%s'", options.getDecoratorId(), serviceId);
+				}
+			}
+			Collections.sort(list);
+		}
+		return decoratorMap;
+	}
+
+	protected Map<String, ServiceBinderOptionsImpl> createOverrideMap(List<ServiceBinderOptionsImpl> overrideList) {
+		Map<String, ServiceBinderOptionsImpl> overrideMap = new LinkedHashMap<>();
+		for (ServiceBinderOptionsImpl overrideOptions : overrideList) {
+			String serviceId = getServiceId(overrideOptions);
+			if (overrideMap.containsKey(serviceId)) {
+				throw new IocException("Duplicate override for serviceId '%s'", serviceId);
+			}
+			overrideMap.put(serviceId, overrideOptions);
+		}
+		return overrideMap;
+	}
+
+	protected String getServiceId(ServiceBinderOptionsImpl options) {
+		if (options.getServiceId() != null) {
+			return options.getServiceId();
+		}
+		return ServiceRegistryImpl.getDefaultServiceId(options.getServiceType());
+	}
+	
+	protected String getServiceId(ServiceDecoratorOptionsImpl options) {
+		if (options.getServiceId() != null) {
+			return options.getServiceId();
+		}
+		return ServiceRegistryImpl.getDefaultServiceId(options.getServiceType());
+	}
+	
+}
@@ -0,0 +1,106 @@
+package com.lazan.tinyioc.internal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// misses are memoized with weak keys so asking about a type doesn't keep its class loaded
+public class ServiceTypeIndex {
+	private static class TypeKey extends WeakReference<Class<?>> {
+		private final int hash;
+
+		TypeKey(Class<?> type, ReferenceQueue<Class<?>> queue) {
+			super(type, queue);
+			this.hash = System.identityHashCode(type);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof TypeKey)) {
+				return false;
+			}
+			Class<?> type = get();
+			return type != null && type == ((TypeKey) other).get();
+		}
+	}
+
+	private final List<ServiceReference<?>> references;
+	private final Map<Class<?>, List<ServiceReference<?>>> referencesByType;
+	private final ConcurrentMap<Class<?>, List<ServiceReference<?>>> assignableByType = new ConcurrentHashMap<>();
+	private final ConcurrentMap<TypeKey, Boolean> missingTypes = new ConcurrentHashMap<>();
+	private final ReferenceQueue<Class<?>> unloadedTypes = new ReferenceQueue<>();
+
+	public ServiceTypeIndex(Iterable<ServiceReference<?>> references) {
+		List<ServiceReference<?>> _references = new ArrayList<>();
+		Map<Class<?>, List<ServiceReference<?>>> _referencesByType = new LinkedHashMap<>();
+		for (ServiceReference<?> reference : references) {
+			_references.add(reference);
+			List<ServiceReference<?>> referenceList = _referencesByType.get(reference.getServiceType());
+			if (referenceList == null) {
+				referenceList = new ArrayList<>(1);
+				_referencesByType.put(reference.getServiceType(), referenceList);
+			}
+			referenceList.add(reference);
+		}
+		for (Map.Entry<Class<?>, List<ServiceReference<?>>> entry : _referencesByType.entrySet()) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		this.references = Collections.unmodifiableList(_references);
+		this.referencesByType = Collections.unmodifiableMap(_referencesByType);
+	}
+
+	public List<ServiceReference<?>> getCandidates(Class<?> serviceType) {
+		List<ServiceReference<?>> candidates = referencesByType.get(serviceType);
+		return candidates == null ? getAssignable(serviceType) : candidates;
+	}
+
+	public List<ServiceReference<?>> getAssignable(Class<?> serviceType) {
+		List<ServiceReference<?>> assignable = assignableByType.get(serviceType);
+		if (assignable == null) {
+			if (missingTypes.containsKey(new TypeKey(serviceType, null))) {
+				return Collections.emptyList();
+			}
+			List<ServiceReference<?>> _assignable = new ArrayList<>();
+			for (ServiceReference<?> reference : references) {
+				if (serviceType.isAssignableFrom(reference.getServiceType())) {
+					_assignable.add(reference);
+				}
+			}
+			if (_assignable.isEmpty()) {
+				Reference<?> unloaded;
+				while ((unloaded = unloadedTypes.poll()) != null) {
+					missingTypes.remove(unloaded);
+				}
+				missingTypes.put(new TypeKey(serviceType, unloadedTypes), Boolean.TRUE);
+				return Collections.emptyList();
+			}
+			assignable = Collections.unmodifiableList(_assignable);
+			assignableByType.putIfAbsent(serviceType, assignable);
+		}
+		return assignable;
+	}
+
+	public List<ServiceReference<?>> getReferences() {
+		return references;
+	}
+
+	public Set<Class<?>> getServiceTypes() {
+		return referencesByType.keySet();
+	}
+}
@@ -0,0 +1,144 @@
+package com.lazan.tinyioc.internal;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ThreadPerTaskExecutor extends AbstractExecutorService {
+	private final ThreadFactory threadFactory;
+	private final Semaphore permits;
+	private final BlockingQueue<Runnable> queue;
+	private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger activeCount = new AtomicInteger();
+	// started and not yet finished draining, so termination is never seen between two tasks
+	private final AtomicInteger startedCount = new AtomicInteger();
+	private volatile boolean shutdown;
+
+	public ThreadPerTaskExecutor(ThreadFactory threadFactory, int maxConcurrency, int queueCapacity) {
+		super();
+		this.threadFactory = threadFactory;
+		this.permits = new Semaphore(maxConcurrency);
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (shutdown) {
+			throw new RejectedExecutionException("Executor has been shut down");
+		}
+		if (permits.tryAcquire()) {
+			start(command);
+			return;
+		}
+		if (!queue.offer(command)) {
+			throw new RejectedExecutionException("Queue is full");
+		}
+		// a permit may have been released between tryAcquire() and offer()
+		drain();
+	}
+
+	protected void drain() {
+		while (!queue.isEmpty() && permits.tryAcquire()) {
+			Runnable next = queue.poll();
+			if (next == null) {
+				permits.release();
+			} else {
+				start(next);
+			}
+		}
+	}
+
+	protected void start(final Runnable command) {
+		Thread thread;
+		startedCount.incrementAndGet();
+		try {
+			thread = threadFactory.newThread(new Runnable() {
+				@Override
+				public void run() {
+					activeCount.incrementAndGet();
+					try {
+						command.run();
+					} finally {
+						activeCount.decrementAndGet();
+						threads.remove(Thread.currentThread());
+						permits.release();
+						try {
+							drain();
+						} finally {
+							startedCount.decrementAndGet();
+						}
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		} catch (RuntimeException | Error e) {
+			startedCount.decrementAndGet();
+			permits.release();
+			throw e;
+		}
+	}
+
+	public int getActiveCount() {
+		return activeCount.get();
+	}
+
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown = true;
+		List<Runnable> pending = new ArrayList<>();
+		queue.drainTo(pending);
+		for (Thread thread : threads) {
+			thread.interrupt();
+		}
+		return pending;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return shutdown && startedCount.get() == 0 && queue.isEmpty();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (!isTerminated()) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
+			}
+			Iterator<Thread> iterator = threads.iterator();
+			if (iterator.hasNext()) {
+				TimeUnit.NANOSECONDS.timedJoin(iterator.next(), remaining);
+			} else {
+				// not yet shut down, or a finished task is starting the next queued one
+				TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(10)));
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,149 @@
+package com.lazan.tinyioc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.lazan.tinyioc.annotations.Autobuild;
+import com.lazan.tinyioc.annotations.Bind;
+import com.lazan.tinyioc.annotations.Service;
+import com.lazan.tinyioc.internal.AotHints;
+import com.lazan.tinyioc.internal.InjectionPlan;
+
+public class AotHintsWriterTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+	
+	public static class Base {
+		@Inject
+		protected Long number;
+	}
+	
+	public static class Foo extends Base {
+		@Inject @Named("bar")
+		private String bar;
+		
+		public Foo() {}
+		
+		@Inject
+		public Foo(Integer value) {}
+	}
+	
+	public static class Baz implements Runnable {
+		@Override
+		public void run() {}
+	}
+	
+	public static class TestModule {
+		@Bind
+		public static void bind(ServiceBinder binder) {
+			binder.bind(Foo.class);
+			binder.bind(Runnable.class, Baz.class);
+			binder.bind(String.class, "bar").withServiceId("bar");
+		}
+		
+		@Service
+		public Integer value(@Autobuild Baz baz) {
+			return 1;
+		}
+	}
+
+	@Test
+	public void testReflectConfig() throws Exception {
+		StringBuilder out = new StringBuilder();
+		new AotHintsWriter(TestModule.class).writeReflectConfig(out);
+		String expected = 
+				"[\n" +
+				"  {\n" +
+				"    \"name\" : \"com.lazan.tinyioc.AotHintsWriterTest$TestModule\",\n" +
+				"    \"methods\" : [\n" +
+				"      { \"name\" : \"%s\", \"parameterTypes\" : [%s] },\n" +
+				"      { \"name\" : \"%s\", \"parameterTypes\" : [%s] },\n" +
+				"      { \"name\" : \"<init>\", \"parameterTypes\" : [] }\n" +
+				"    ]\n" +
+				"  },\n" +
+				"  {\n" +
+				"    \"name\" : \"com.lazan.tinyioc.AotHintsWriterTest$Baz\",\n" +
+				"    \"methods\" : [\n" +
+				"      { \"name\" : \"<init>\", \"parameterTypes\" : [] }\n" +
+				"    ]\n" +
+				"  },\n" +
+				"  {\n" +
+				"    \"name\" : \"com.lazan.tinyioc.AotHintsWriterTest$Foo\",\n" +
+				"    \"methods\" : [\n" +
+				"      { \"name\" : \"<init>\", \"parameterTypes\" : [\"java.lang.Integer\"] }\n" +
+				"    ],\n" +
+				"    \"fields\" : [\n" +
+				"      { \"name\" : \"bar\" }\n" +
+				"    ]\n" +
+				"  },\n" +
+				"  {\n" +
+				"    \"name\" : \"com.lazan.tinyioc.AotHintsWriterTest$Base\",\n" +
+				"    \"fields\" : [\n" +
+				"      { \"name\" : \"number\" }\n" +
+				"    ]\n" +
+				"  }\n" +
+				"]\n";
+		String actual = out.toString();
+		boolean bindFirst = actual.indexOf("\"bind\"") < actual.indexOf("\"value\"");
+		String bind = "bind", bindParams = "\"com.lazan.tinyioc.ServiceBinder\"";
+		String value = "value", valueParams = "\"com.lazan.tinyioc.AotHintsWriterTest$Baz\"";
+		if (bindFirst) {
+			assertEquals(String.format(expected, bind, bindParams, value, valueParams), actual);
+		} else {
+			assertEquals(String.format(expected, value, valueParams, bind, bindParams), actual);
+		}
+	}
+	
+	@Test
+	public void testClassList() throws Exception {
+		File directory = temp.newFolder("aot");
+		new AotHintsWriter(new ServiceRegistryBuilder().withModuleType(TestModule.class)).write(directory);
+		List<String> classList = Files.readAllLines(new File(directory, AotHintsWriter.CLASS_LIST).toPath(), StandardCharsets.UTF_8);
+		assertTrue(classList.contains("com/lazan/tinyioc/internal/ServiceRegistryImpl"));
+		assertTrue(classList.containsAll(Arrays.asList(
+				"com/lazan/tinyioc/AotHintsWriterTest$TestModule",
+				"com/lazan/tinyioc/AotHintsWriterTest$Foo",
+				"com/lazan/tinyioc/AotHintsWriterTest$Base",
+				"com/lazan/tinyioc/AotHintsWriterTest$Baz",
+				"java/lang/Integer",
+				"java/lang/String",
+				"java/lang/Runnable")));
+		assertFalse(classList.contains("java/lang/Object"));
+		assertTrue(new File(directory, AotHintsWriter.REFLECT_CONFIG).exists());
+	}
+	
+	@Test
+	public void testRegistryTypes() throws Exception {
+		Set<Class<?>> loadedTypes = new AotHints(Collections.<ServiceModule>emptyList()).getLoadedTypes();
+		assertTrue(loadedTypes.contains(InjectionPlan.FieldInjectionPoint.class));
+		
+		File internalDir = new File(AotHints.class.getResource("AotHints.class").toURI()).getParentFile();
+		List<String> missing = new ArrayList<>();
+		for (String fileName : internalDir.list()) {
+			if (fileName.endsWith(".class") && !fileName.contains("$") && !fileName.equals("AotHints.class")) {
+				Class<?> type = Class.forName(AotHints.class.getPackage().getName() + "." + fileName.substring(0, fileName.length() - ".class".length()));
+				if (!loadedTypes.contains(type)) {
+					missing.add(type.getName());
+				}
+			}
+		}
+		assertEquals(Collections.emptyList(), missing);
+	}
+}
@@ -0,0 +1,49 @@
+package com.lazan.tinyioc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class IocExceptionTest {
+	private static class CountingArg {
+		private final AtomicInteger count = new AtomicInteger();
+		@Override
+		public String toString() {
+			return "arg" + count.incrementAndGet();
+		}
+	}
+	
+	@Test
+	public void testLazyMessage() {
+		CountingArg arg = new CountingArg();
+		IllegalStateException cause = new IllegalStateException();
+		IocException e = new IocException(cause, "Error with %s", arg);
+		assertEquals(0, arg.count.get());
+		assertSame(cause, e.getCause());
+		assertEquals("Error with arg1", e.getMessage());
+		assertEquals("Error with arg1", e.getMessage());
+		assertEquals("com.lazan.tinyioc.IocException: Error with arg1", e.toString());
+		assertEquals(1, arg.count.get());
+		
+		assertEquals("100%", new IocException("100%").getMessage());
+	}
+	
+	@Test
+	public void testSerialize() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(new IocException("Error with %s", new CountingArg()));
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			IocException e = (IocException) in.readObject();
+			assertEquals("Error with arg1", e.getMessage());
+		}
+	}
+}
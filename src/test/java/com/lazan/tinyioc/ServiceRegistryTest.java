@@ -1,18 +1,41 @@
 package com.lazan.tinyioc;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.StringReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -20,6 +43,9 @@ import javax.inject.Named;
 import org.junit.Test;
 
 import com.lazan.tinyioc.annotations.Bind;
+import com.lazan.tinyioc.annotations.Decorate;
+import com.lazan.tinyioc.annotations.Service;
+import com.lazan.tinyioc.internal.ModuleDiscovery;
 
 public class ServiceRegistryTest {
 	public static class Child {}
@@ -59,6 +85,15 @@ public class ServiceRegistryTest {
 		}
 	}
 	
+	public static class ExecutorClient {
+		private final ExecutorService io;
+		
+		public ExecutorClient(@Named("io") ExecutorService io) {
+			super();
+			this.io = io;
+		}
+	}
+	
 	@Test
 	public void testInject() {
 		ServiceModule module = new ServiceModule() {
@@ -118,14 +153,37 @@ public class ServiceRegistryTest {
 		assertEquals("hello", ns.string1);
 		assertEquals("world", ns.string2);
 		
-		assertEquals(createSet("string1", "string2", "namedStrings", "autobuilder"), registry.getServiceIds());
-		assertEquals(createSet(String.class, NamedStrings.class, Autobuilder.class), registry.getServiceTypes());
+		assertEquals(createSet("string1", "string2", "namedStrings", "autobuilder", "executorSource"), registry.getServiceIds());
+		assertEquals(createSet(String.class, NamedStrings.class, Autobuilder.class, ExecutorSource.class), registry.getServiceTypes());
 		Map<String, String> expected = new HashMap<>();
 		expected.put("string1",  "hello");
 		expected.put("string2",  "world");
 		assertEquals(expected, registry.getServices(String.class));
 	}
 	
+	public static class StaticFieldBean {
+		@Inject @Named("string1")
+		private static String staticString;
+		@Inject @Named("string2")
+		private String instanceString;
+	}
+	
+	@Test
+	public void testInjectStaticField() {
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(StaticFieldBean.class);
+				binder.bind(String.class, "hello").withServiceId("string1");
+				binder.bind(String.class, "world").withServiceId("string2");
+			}
+		};
+		ServiceRegistry registry = new ServiceRegistryBuilder().withModule(module).build();
+		StaticFieldBean bean = registry.getService(StaticFieldBean.class);
+		assertEquals("hello", StaticFieldBean.staticString);
+		assertEquals("world", bean.instanceString);
+	}
+	
 	private Set<Object> createSet(Object... values) {
 		return new LinkedHashSet<>(Arrays.asList(values));
 	}
@@ -310,6 +368,92 @@ public class ServiceRegistryTest {
 		return new ServiceRegistryBuilder().withModules(modules).build();
 	}
 	
+	public static class CycleA {
+		public CycleA(CycleB cycleB) {}
+	}
+	
+	public static class CycleB {
+		@Inject
+		private CycleA cycleA;
+	}
+	
+	public static class GraphModule {
+		@Bind
+		public void bind(ServiceBinder binder) {
+			binder.bind(Child.class);
+			binder.bind(Parent.class);
+			binder.bind(GrandParent.class);
+			binder.bind(CycleA.class);
+			binder.bind(CycleB.class);
+			binder.bind(String.class, "one").withServiceId("string1");
+			binder.bind(String.class, "two").withServiceId("string2");
+		}
+		
+		@Service(serviceId = "holder")
+		public StringBuilder holder(Parent parent, @Named("string1") String string1, @Named("missing") String missing, String ambiguous) {
+			return new StringBuilder();
+		}
+		
+		@Decorate(decoratorId = "d1", serviceId = "holder")
+		public StringBuilder decorate(StringBuilder delegate, @Named("executorSource") ExecutorSource executorSource, Runnable runnable) {
+			return delegate;
+		}
+	}
+	
+	@Test
+	public void testDependencyGraph() {
+		final AtomicInteger builds = new AtomicInteger();
+		ServiceModule opaqueModule = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Runnable.class, new ServiceBuilder<Runnable>() {
+					@Override
+					public Runnable build(ServiceBuilderContext context) {
+						builds.incrementAndGet();
+						return new Thread();
+					}
+				}).withServiceId("opaque");
+			}
+		};
+		ServiceRegistry registry = new ServiceRegistryBuilder().withModule(opaqueModule).withModuleType(GraphModule.class).build();
+		DependencyGraph graph = registry.getDependencyGraph();
+		assertSame(graph, registry.getDependencyGraph());
+		assertEquals(0, builds.get());
+		
+		assertEquals(createSet(), graph.getDependencies("child"));
+		assertEquals(createSet("child"), graph.getDependencies("parent"));
+		assertEquals(createSet("parent", "child"), graph.getDependencies("grandParent"));
+		assertEquals(createSet("parent", "string1", "executorSource", "opaque"), graph.getDependencies("holder"));
+		assertTrue(graph.isComplete("holder"));
+		assertFalse(graph.isComplete("opaque"));
+		assertEquals(Arrays.asList(
+				"Missing dependency 'missing' for serviceId 'holder' at parameter 2 of GraphModule.holder",
+				"Ambiguous dependency java.lang.String for serviceId 'holder' at parameter 3 of GraphModule.holder, found [string1, string2]",
+				"Circular dependency [cycleA, cycleB, cycleA]"), graph.getProblems());
+		
+		String dot = graph.toDot();
+		assertTrue(dot, dot.startsWith("digraph services {\n"));
+		assertTrue(dot, dot.contains("  \"opaque\" [style=dashed];\n"));
+		assertTrue(dot, dot.contains("  \"grandParent\" -> \"parent\";\n"));
+		assertTrue(dot, dot.contains("  \"holder\" -> \"missing\" [color=red];\n"));
+		try {
+			graph.validate();
+			fail();
+		} catch (IocException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Found 3 problems in the service graph:"));
+		}
+		try {
+			new ServiceRegistryBuilder().withModuleType(GraphModule.class).withValidation().build();
+			fail();
+		} catch (IocException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("Missing dependency java.lang.Runnable for serviceId 'holder' at parameter 2 of GraphModule.decorate"));
+		}
+		
+		ServiceRegistry realized = new ServiceRegistryBuilder().withModuleType(GraphModule.class).build();
+		realized.getService("parent");
+		assertEquals(createSet("child"), realized.getDependencyGraph().getDependencies("parent"));
+	}
+	
 	public static class TestModule {
 		@Bind
 		public void bind(ServiceBinder binder) {
@@ -446,4 +590,846 @@ public class ServiceRegistryTest {
 		Set<String> actualCollection = new LinkedHashSet<>(registry.getService(CollectionBean.class).getCollection());
 		assertEquals(expectedCollection, actualCollection);
 	}
+	
+	private static volatile boolean lazyServiceInitialized;
+	
+	public static class LazyService implements Runnable {
+		static {
+			lazyServiceInitialized = true;
+		}
+		@Inject
+		private Child child;
+		@Override
+		public void run() {}
+	}
+	
+	public static class EagerService implements Runnable {
+		@Override
+		public void run() {}
+	}
+	
+	@Test
+	public void testBindClassName() {
+		final ClassLoader classLoader = getClass().getClassLoader();
+		final List<Runnable> preloads = new ArrayList<>();
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Child.class);
+				binder.bind(Runnable.class, LazyService.class.getName(), classLoader).withServiceId("lazy");
+				binder.bind(Runnable.class, EagerService.class.getName(), classLoader).withServiceId("eager").eagerLoad();
+				binder.bind(Runnable.class, "com.example.Missing", classLoader).withServiceId("missing");
+				binder.bind(Runnable.class, Child.class.getName(), classLoader).withServiceId("incompatible");
+				binder.bind(Runnable.class, "com.example.Overridden", classLoader).withServiceId("overridden").eagerLoad();
+				binder.bind(Runnable.class, "com.example.Disabled", classLoader).withServiceId("disabled").eagerLoad()
+						.when(Conditions.onProperty("tinyioc.test.disabled", "true", false));
+			}
+		};
+		ServiceModule overrides = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.override(Runnable.class, LazyService.class.getName(), classLoader).withServiceId("overridden");
+			}
+		};
+		Executor classPreloader = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				preloads.add(command);
+				command.run();
+			}
+		};
+		ServiceRegistry registry = new ServiceRegistryBuilder().withModules(module, overrides).withClassPreloader(classPreloader).build();
+		assertEquals(1, preloads.size());
+		assertFalse(lazyServiceInitialized);
+		
+		LazyService lazy = registry.getService("lazy", LazyService.class);
+		assertTrue(lazyServiceInitialized);
+		assertSame(registry.getService(Child.class), lazy.child);
+		assertTrue(registry.getService("eager") instanceof EagerService);
+		
+		try {
+			registry.getService("missing");
+			fail();
+		} catch (IocException e) {
+			assertEquals("Error loading class 'com.example.Missing'", e.getMessage());
+		}
+		try {
+			registry.getService("incompatible");
+			fail();
+		} catch (IocException e) {
+			assertEquals(String.format("Class '%s' is not assignable to java.lang.Runnable", Child.class.getName()), e.getMessage());
+		}
+		
+		Executor rejecting = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException();
+			}
+		};
+		registry = new ServiceRegistryBuilder().withModules(module, overrides).withClassPreloader(rejecting).build();
+		assertTrue(registry.getService("eager") instanceof EagerService);
+	}
+	
+	@Test
+	public void testServiceHandle() {
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Parent.class);
+				binder.bind(Child.class);
+				binder.bind(String.class, "foo").withServiceId("string1");
+				binder.bind(String.class, "bar").withServiceId("string2");
+				binder.bind(CharSequence.class, (CharSequence) "baz").withServiceId("charSequence");
+			}
+		};
+		ServiceRegistry registry = buildRegistry(module);
+		ServiceHandle<Parent> parentHandle = registry.handle(Parent.class);
+		assertEquals("parent", parentHandle.getServiceId());
+		assertEquals(Parent.class, parentHandle.getServiceType());
+		Parent parent = parentHandle.get();
+		assertSame(parent, registry.getService(Parent.class));
+		assertSame(parent, parentHandle.get());
+		assertSame(registry.getService(Child.class), registry.handle("child", Child.class).get());
+		assertEquals("baz", registry.handle("charSequence", String.class).get());
+		assertEquals("bar", registry.handle("string2", CharSequence.class).get());
+		
+		try {
+			registry.handle(String.class);
+			fail();
+		} catch (IocException e) {
+			assertEquals("Found 2 services for serviceType 'java.lang.String', expecting 1", e.getMessage());
+		}
+		try {
+			registry.handle("unknown", String.class);
+			fail();
+		} catch (IocException e) {
+			assertEquals("No service found for serviceId 'unknown'", e.getMessage());
+		}
+		try {
+			registry.handle("string1", Integer.class);
+			fail();
+		} catch (IocException e) {
+			assertEquals("Incompatible type for serviceId 'string1'", e.getMessage());
+		}
+		try {
+			registry.handle("charSequence", StringBuilder.class).get();
+			fail();
+		} catch (IocException e) {
+			assertEquals("Incompatible type for serviceId 'charSequence'", e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testAssignableTypes() {
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(EagerService.class);
+				binder.bind(String.class, "foo").withServiceId("string1");
+				binder.bind(StringBuilder.class, new StringBuilder("bar"));
+				binder.bind(CharSequence.class, (CharSequence) "baz").withServiceId("charSequence");
+				binder.bind(Integer.class, 1);
+				binder.bind(Long.class, 2L);
+			}
+		};
+		ServiceRegistry registry = buildRegistry(module);
+		assertSame(registry.getService(EagerService.class), registry.getService(Runnable.class));
+		assertEquals("baz", registry.getService(CharSequence.class));
+		try {
+			registry.getService(Number.class);
+			fail();
+		} catch (IocException e) {
+			assertEquals("Found 2 services for serviceType 'java.lang.Number', expecting 1", e.getMessage());
+		}
+		try {
+			registry.getService(Thread.class);
+			fail();
+		} catch (IocException e) {
+			assertEquals("Found 0 services for serviceType 'java.lang.Thread', expecting 1", e.getMessage());
+		}
+		
+		assertEquals(Arrays.asList("string1", "stringBuilder", "charSequence"), new ArrayList<>(registry.getServices(CharSequence.class).keySet()));
+		assertEquals(Arrays.asList(1, 2L), new ArrayList<>(registry.getServices(Number.class).values()));
+		assertTrue(registry.getServices(Thread.class).isEmpty());
+		assertSame(registry.handle(Runnable.class).get(), registry.getService(Runnable.class));
+	}
+	
+	@Test
+	public void testFindService() {
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Child.class);
+				binder.bind(String.class, "foo").withServiceId("string1");
+				binder.bind(String.class, "bar").withServiceId("string2");
+				binder.bind(CharSequence.class, (CharSequence) "baz").withServiceId("charSequence");
+			}
+		};
+		ServiceRegistry registry = buildRegistry(module);
+		assertSame(registry.getService(Child.class), registry.findService(Child.class).get());
+		assertFalse(registry.findService(Parent.class).isPresent());
+		assertEquals("baz", registry.findService(CharSequence.class).get());
+		ServiceRegistry child = registry.createChild(new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Runnable.class, new Thread()).withServiceId("runnable");
+			}
+		});
+		assertSame(registry.getService(Child.class), child.findService(Child.class).get());
+		assertFalse(child.findService(Parent.class).isPresent());
+		assertEquals("foo", registry.findService("string1", String.class).get());
+		assertEquals("baz", registry.findService("charSequence", String.class).get());
+		assertFalse(registry.findService("charSequence", StringBuilder.class).isPresent());
+		assertFalse(registry.findService("string1", Integer.class).isPresent());
+		assertFalse(registry.findService("unknown", String.class).isPresent());
+		try {
+			registry.findService(String.class);
+			fail();
+		} catch (IocException e) {
+			assertEquals("Found 2 services for serviceType 'java.lang.String', expecting 1", e.getMessage());
+		}
+		
+		assertTrue(registry.containsService(Child.class));
+		assertTrue(registry.containsService(String.class));
+		assertFalse(registry.containsService(Parent.class));
+		assertTrue(registry.containsService("string1"));
+		assertFalse(registry.containsService("unknown"));
+	}
+	
+	@Test
+	public void testLazyServices() {
+		final List<String> built = new ArrayList<>();
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				for (int i = 0; i < 4; ++i) {
+					final String value = "value" + i;
+					binder.bind(CharSequence.class, new ServiceBuilder<CharSequence>() {
+						@Override
+						public CharSequence build(ServiceBuilderContext context) {
+							built.add(value);
+							return value;
+						}
+					}).withServiceId("service" + i);
+				}
+			}
+		};
+		ServiceRegistry registry = buildRegistry(module);
+		Map<String, CharSequence> services = registry.getServices(CharSequence.class);
+		assertSame(services, registry.getServices(CharSequence.class));
+		assertEquals(4, services.size());
+		assertEquals(Arrays.asList("service0", "service1", "service2", "service3"), new ArrayList<>(services.keySet()));
+		assertTrue(built.isEmpty());
+		
+		assertEquals("value2", services.get("service2"));
+		assertEquals(Arrays.asList("value2"), built);
+		assertEquals("value0", registry.streamServices(CharSequence.class).findFirst().get());
+		assertEquals(Arrays.asList("value2", "value0"), built);
+		
+		assertEquals(Arrays.asList("value0", "value1", "value2", "value3"), new ArrayList<>(services.values()));
+		assertEquals(4, registry.streamServices(CharSequence.class).parallel().count());
+		assertEquals(4, built.size());
+		try {
+			services.put("foo", "bar");
+			fail();
+		} catch (UnsupportedOperationException e) {}
+		
+		Map.Entry<String, CharSequence> first = services.entrySet().iterator().next();
+		assertEquals(new AbstractMap.SimpleEntry<String, CharSequence>("service0", "value0"), first);
+		assertEquals(new AbstractMap.SimpleEntry<String, CharSequence>("service0", "value0").hashCode(), first.hashCode());
+		assertFalse(first.equals(new AbstractMap.SimpleEntry<String, CharSequence>("service0", null)));
+		assertFalse(first.equals(new AbstractMap.SimpleEntry<String, CharSequence>(null, "value0")));
+	}
+	
+	@Test
+	public void testAsyncServices() throws Exception {
+		final CompletableFuture<String> schema = new CompletableFuture<>();
+		final AtomicInteger attempts = new AtomicInteger();
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bindAsync(String.class, new AsyncServiceBuilder<String>() {
+					@Override
+					public CompletionStage<String> build(ServiceBuilderContext context) {
+						return schema;
+					}
+				}).withServiceId("schema").eagerLoad();
+				binder.bindAsync(CharSequence.class, new AsyncServiceBuilder<CharSequence>() {
+					@Override
+					public CompletionStage<CharSequence> build(ServiceBuilderContext context) {
+						return context.getServiceRegistry().getServiceAsync("schema", String.class).thenApply(new Function<String, CharSequence>() {
+							@Override
+							public CharSequence apply(String value) {
+								return new StringBuilder("client-").append(value);
+							}
+						});
+					}
+				}).withServiceId("client");
+				binder.bindAsync(Runnable.class, new AsyncServiceBuilder<Runnable>() {
+					@Override
+					public CompletionStage<Runnable> build(ServiceBuilderContext context) {
+						CompletableFuture<Runnable> future = new CompletableFuture<>();
+						if (attempts.incrementAndGet() == 1) {
+							future.completeExceptionally(new IllegalStateException("unavailable"));
+						} else {
+							future.complete(new Thread());
+						}
+						return future;
+					}
+				}).withServiceId("flaky");
+				binder.decorate(String.class, "d1", new StringDecorator("[%s]")).withServiceId("schema");
+			}
+		};
+		ServiceRegistry registry = buildRegistry(module);
+		CompletableFuture<Void> ready = registry.ready().toCompletableFuture();
+		CompletableFuture<CharSequence> client = registry.getServiceAsync("client", CharSequence.class).toCompletableFuture();
+		assertFalse(ready.isDone());
+		assertFalse(client.isDone());
+		
+		schema.complete("v1");
+		assertTrue(ready.isDone());
+		assertEquals("[v1]", registry.getService("schema"));
+		assertEquals("client-[v1]", client.get().toString());
+		assertSame(client.get(), registry.getService("client"));
+		assertSame(client.get(), registry.getServiceAsync(CharSequence.class).toCompletableFuture().get());
+		
+		try {
+			registry.getService("flaky");
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("unavailable", e.getMessage());
+		}
+		assertNotNull(registry.getService("flaky"));
+		assertEquals(2, attempts.get());
+	}
+	
+	@Test
+	public void testExecutorSource() throws Exception {
+		final AtomicInteger createdUnused = new AtomicInteger();
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(ExecutorClient.class);
+				ExecutorDefinitions.bind(binder, "io", ExecutorDefinitions.fixed(1, 1));
+				binder.contribute(ExecutorSource.class, new MappedContributor<String, ExecutorDefinition>() {
+					@Override
+					public void contribute(ServiceBuilderContext context, MappedConfiguration<String, ExecutorDefinition> configuration) {
+						configuration.add("compute", "compute", ExecutorDefinitions.forkJoin(2));
+						configuration.add("unused", "unused", new ExecutorDefinition() {
+							@Override
+							public ExecutorService createExecutor(String name) {
+								createdUnused.incrementAndGet();
+								return Executors.newSingleThreadExecutor();
+							}
+						});
+						configuration.add("requests", "requests", ExecutorDefinitions.virtualThreads(1, 1));
+					}
+				});
+			}
+		};
+		ServiceRegistry registry = buildRegistry(module);
+		ExecutorSource executorSource = registry.getService(ExecutorSource.class);
+		assertEquals(createSet("io", "compute", "unused", "requests"), executorSource.getExecutorNames());
+		
+		ExecutorService io = executorSource.getExecutor("io");
+		assertSame(io, registry.getService(ExecutorClient.class).io);
+		assertSame(io, registry.getService("io", Executor.class));
+		assertSame(io, registry.findService("io", ExecutorService.class).get());
+		assertSame(io, registry.handle("io", Executor.class).get());
+		assertTrue(registry.containsService("io"));
+		assertEquals(Collections.singletonMap("io", io), registry.getServices(ExecutorService.class));
+		assertEquals(createSet("executorSource"), registry.getDependencyGraph().getDependencies("io"));
+		assertEquals(createSet("io"), registry.getDependencyGraph().getDependencies("executorClient"));
+		assertFalse(registry.containsService("compute"));
+		assertFalse(registry.findService("compute", ExecutorService.class).isPresent());
+		
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch started = new CountDownLatch(2);
+		Runnable blocker = new Runnable() {
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		io.execute(blocker);
+		io.execute(blocker);
+		try {
+			io.execute(blocker);
+			fail();
+		} catch (RejectedExecutionException e) {}
+		
+		ExecutorService requests = executorSource.getExecutor("requests");
+		requests.execute(blocker);
+		requests.execute(blocker);
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		assertEquals(1, executorSource.getActiveCount("io"));
+		assertEquals(1, executorSource.getQueueDepth("io"));
+		assertEquals(1, executorSource.getActiveCount("requests"));
+		assertEquals(1, executorSource.getQueueDepth("requests"));
+		try {
+			requests.execute(blocker);
+			fail();
+		} catch (RejectedExecutionException e) {}
+		release.countDown();
+		
+		assertEquals(Integer.valueOf(3), executorSource.getExecutor("compute").submit(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return 3;
+			}
+		}).get());
+		
+		assertEquals(0, executorSource.getActiveCount("unused"));
+		assertEquals(0, executorSource.getQueueDepth("unused"));
+		assertEquals(0, createdUnused.get());
+		
+		registry.shutdown();
+		assertTrue(io.awaitTermination(10, TimeUnit.SECONDS));
+		assertTrue(requests.awaitTermination(10, TimeUnit.SECONDS));
+		try {
+			executorSource.getExecutor("unused");
+			fail();
+		} catch (IocException e) {
+			assertEquals("Cannot create executor 'unused', the ExecutorSource has been shut down", e.getMessage());
+		}
+		try {
+			executorSource.getExecutor("unknown");
+			fail();
+		} catch (IocException e) {
+			assertEquals("No executor found for name 'unknown'", e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testAccessRecorderPrewarming() throws Exception {
+		final List<String> built = new ArrayList<>();
+		final ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				for (final String serviceId : new String[] { "first", "second", "unused" }) {
+					binder.bind(Runnable.class, new ServiceBuilder<Runnable>() {
+						@Override
+						public Runnable build(ServiceBuilderContext context) {
+							if ("second".equals(serviceId)) {
+								context.getServiceRegistry().getService("first");
+							}
+							built.add(serviceId);
+							return new Thread();
+						}
+					}).withServiceId(serviceId);
+				}
+			}
+		};
+		ServiceAccessRecorder recorder = new ServiceAccessRecorder();
+		ServiceRegistry recorded = new ServiceRegistryBuilder().withModule(module).withAccessRecorder(recorder).build();
+		recorded.getService("second");
+		assertEquals(Arrays.asList("first", "second"), recorder.getServiceIds());
+		StringBuilder profile = new StringBuilder();
+		recorder.write(profile);
+		assertTrue(profile.toString(), profile.toString().matches("first\t\\d+\nsecond\t\\d+\n"));
+		
+		File profileFile = File.createTempFile("tiny-ioc", ".profile");
+		try {
+			recorder.write(profileFile);
+			assertEquals(Arrays.asList("first", "second"), ServiceAccessRecorder.readProfile(profileFile));
+			
+			built.clear();
+			new ServiceRegistryBuilder().withModule(module).withPrewarming(profileFile, sameThreadExecutor()).build();
+			assertEquals(Arrays.asList("first", "second"), built);
+		} finally {
+			profileFile.delete();
+		}
+		assertEquals(Collections.emptyList(), ServiceAccessRecorder.readProfile(profileFile));
+		assertEquals(Arrays.asList("removed", "first"), ServiceAccessRecorder.readProfile(new StringReader("removed\t5\n\nfirst\t7\nfirst\t9\n")));
+		
+		built.clear();
+		new ServiceRegistryBuilder().withModule(module).withPrewarming(Arrays.asList("removed", "second"), sameThreadExecutor()).build();
+		assertEquals(Arrays.asList("first", "second"), built);
+	}
+	
+	@Test
+	public void testWarmup() throws Exception {
+		final AtomicInteger eagerCalls = new AtomicInteger();
+		final AtomicInteger lazyCalls = new AtomicInteger();
+		final CountDownLatch release = new CountDownLatch(1);
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Runnable.class, new Thread()).withServiceId("eager").eagerLoad().warmup(new ServiceWarmup<Runnable>() {
+					@Override
+					public void warmup(Runnable service) {
+						try {
+							release.await();
+						} catch (InterruptedException e) {
+							throw new IllegalStateException(e);
+						}
+						eagerCalls.incrementAndGet();
+					}
+				}, 100);
+				binder.bind(Runnable.class, new Thread()).withServiceId("lazy").warmup(new ServiceWarmup<Runnable>() {
+					@Override
+					public void warmup(Runnable service) {
+						lazyCalls.incrementAndGet();
+					}
+				}, 10);
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			ServiceRegistry registry = new ServiceRegistryBuilder().withModule(module).withWarmupExecutor(executor).build();
+			CompletableFuture<Void> readiness = registry.readiness().toCompletableFuture();
+			assertTrue(registry.ready().toCompletableFuture().isDone());
+			assertFalse(readiness.isDone());
+			release.countDown();
+			readiness.get(10, TimeUnit.SECONDS);
+			assertEquals(100, eagerCalls.get());
+			assertEquals(0, lazyCalls.get());
+		} finally {
+			executor.shutdown();
+		}
+		
+		ServiceRegistry registry = buildRegistry(module);
+		assertTrue(registry.readiness().toCompletableFuture().isDone());
+		registry.getService("lazy");
+		registry.getService("lazy");
+		assertEquals(10, lazyCalls.get());
+		
+		ServiceModule failing = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Runnable.class, new Thread()).withServiceId("failing").eagerLoad().warmup(new ServiceWarmup<Runnable>() {
+					@Override
+					public void warmup(Runnable service) {
+						throw new IllegalStateException("cold");
+					}
+				}, 1);
+			}
+		};
+		try {
+			buildRegistry(failing).readiness().toCompletableFuture().join();
+			fail();
+		} catch (CompletionException e) {
+			assertEquals("Error warming up 'failing'", e.getCause().getMessage());
+			assertEquals("cold", e.getCause().getCause().getMessage());
+		}
+	}
+	
+	@Test
+	public void testRegistryTemplate() {
+		final AtomicInteger bindCount = new AtomicInteger();
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				bindCount.incrementAndGet();
+				binder.bind(StringBuilder.class, new ServiceBuilder<StringBuilder>() {
+					@Override
+					public StringBuilder build(ServiceBuilderContext context) {
+						return new StringBuilder("built");
+					}
+				});
+			}
+		};
+		ServiceRegistryTemplate template = new ServiceRegistryBuilder().withModule(module).compile();
+		assertTrue(template.getServiceIds().contains("stringBuilder"));
+		ServiceRegistry registry1 = template.newRegistry();
+		ServiceRegistry registry2 = template.newRegistry();
+		StringBuilder service1 = registry1.getService(StringBuilder.class);
+		StringBuilder service2 = registry2.getService(StringBuilder.class);
+		assertNotSame(service1, service2);
+		assertSame(service1, registry1.getService(StringBuilder.class));
+		assertEquals(1, bindCount.get());
+		
+		ServiceModule duplicate = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Runnable.class, new Thread()).withServiceId("x");
+				binder.bind(Runnable.class, new Thread()).withServiceId("x");
+			}
+		};
+		try {
+			new ServiceRegistryBuilder().withModule(duplicate).compile();
+			fail();
+		} catch (IocException e) {
+			assertEquals("Duplicate serviceId 'x'", e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testChildRegistry() {
+		final AtomicInteger buildCount = new AtomicInteger();
+		ServiceModule parentModule = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(String.class, "hello").withServiceId("greeting");
+				binder.bind(CharSequence.class, "parent").withServiceId("name");
+				binder.bind(StringBuilder.class, new ServiceBuilder<StringBuilder>() {
+					@Override
+					public StringBuilder build(ServiceBuilderContext context) {
+						buildCount.incrementAndGet();
+						return new StringBuilder();
+					}
+				});
+			}
+		};
+		ServiceModule childModule = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Runnable.class, new Thread()).withServiceId("tenant");
+				binder.override(CharSequence.class, "child").withServiceId("name");
+				binder.decorate(String.class, "d1", new StringDecorator("[%s]")).withServiceId("greeting");
+			}
+		};
+		ServiceRegistry parent = buildRegistry(parentModule);
+		ServiceRegistry child1 = parent.createChild(childModule);
+		ServiceRegistry child2 = parent.createChild(childModule);
+		
+		StringBuilder shared = parent.getService(StringBuilder.class);
+		assertSame(shared, child1.getService(StringBuilder.class));
+		assertSame(shared, child2.getService("stringBuilder"));
+		assertEquals(1, buildCount.get());
+		
+		assertEquals("child", child1.getService("name"));
+		assertEquals("[hello]", child1.getService("greeting", String.class));
+		assertEquals("[hello]", child1.getServices(CharSequence.class).get("greeting"));
+		assertEquals("parent", parent.getService("name"));
+		assertEquals("hello", parent.getService("greeting"));
+		
+		assertTrue(child1.containsService("tenant"));
+		assertTrue(child1.containsService(Runnable.class));
+		assertFalse(parent.containsService("tenant"));
+		assertTrue(child1.getServiceIds().containsAll(Arrays.asList("greeting", "name", "stringBuilder", "tenant")));
+		assertFalse(parent.findService(Runnable.class).isPresent());
+		
+		ServiceModule duplicate = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(String.class, "again").withServiceId("greeting");
+			}
+		};
+		try {
+			parent.createChild(duplicate);
+			fail();
+		} catch (IocException e) {
+			assertEquals("Duplicate serviceId 'greeting'", e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testChildDependencyGraph() {
+		ServiceRegistry parent = buildRegistry(new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Child.class);
+				binder.bind(Parent.class);
+			}
+		});
+		final Child tenantChild = new Child();
+		ServiceRegistry child = parent.createChild(new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Child.class, tenantChild).withServiceId("tenantChild");
+				binder.bind(GrandParent.class);
+			}
+		});
+		GrandParent grandParent = child.getService(GrandParent.class);
+		assertSame(tenantChild, grandParent.child);
+		assertSame(parent.getService(Child.class), grandParent.parent.child);
+		
+		DependencyGraph graph = child.getDependencyGraph();
+		assertEquals(Collections.emptyList(), graph.getProblems());
+		assertEquals(createSet("parent", "tenantChild"), graph.getDependencies("grandParent"));
+		assertEquals(createSet("child"), graph.getDependencies("parent"));
+	}
+	
+	@Test
+	public void testExtend() {
+		final AtomicInteger buildCount = new AtomicInteger();
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(String.class, "hello").withServiceId("greeting");
+				binder.bind(StringBuilder.class, new ServiceBuilder<StringBuilder>() {
+					@Override
+					public StringBuilder build(ServiceBuilderContext context) {
+						buildCount.incrementAndGet();
+						return new StringBuilder();
+					}
+				});
+			}
+		};
+		ServiceRegistry registry = buildRegistry(module);
+		StringBuilder realized = registry.getService(StringBuilder.class);
+		assertEquals(2, registry.getServices(CharSequence.class).size());
+		
+		registry.extend(new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Runnable.class, new Thread()).withServiceId("plugin");
+				binder.bind(CharSequence.class, "plugin-name").withServiceId("pluginName");
+			}
+		});
+		assertTrue(registry.containsService("plugin"));
+		assertNotNull(registry.getService(Runnable.class));
+		assertEquals("plugin-name", registry.getServices(CharSequence.class).get("pluginName"));
+		assertTrue(registry.getServiceIds().contains("pluginName"));
+		assertSame(realized, registry.getService(StringBuilder.class));
+		assertEquals(1, buildCount.get());
+		
+		ServiceModule overriding = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Runnable.class, new Thread()).withServiceId("other");
+				binder.override(String.class, "changed").withServiceId("greeting");
+			}
+		};
+		try {
+			registry.extend(overriding);
+			fail();
+		} catch (IocException e) {
+			assertEquals("Cannot override existing serviceId 'greeting' of a live registry", e.getMessage());
+		}
+		assertFalse(registry.containsService("other"));
+		
+		ServiceModule duplicate = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Runnable.class, new Thread()).withServiceId("plugin");
+			}
+		};
+		try {
+			registry.extend(duplicate);
+			fail();
+		} catch (IocException e) {
+			assertEquals("Duplicate serviceId 'plugin'", e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testExtendEager() {
+		ServiceRegistry registry = buildRegistry(new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(String.class, "hello").withServiceId("greeting");
+			}
+		});
+		assertTrue(registry.ready().toCompletableFuture().isDone());
+		
+		ServiceModule failing = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(CharSequence.class, "plugin-name").withServiceId("pluginName");
+				binder.bind(Runnable.class, new ServiceBuilder<Runnable>() {
+					@Override
+					public Runnable build(ServiceBuilderContext context) {
+						context.getServiceRegistry().getService("pluginName");
+						throw new IllegalStateException("broken");
+					}
+				}).withServiceId("plugin").eagerLoad();
+			}
+		};
+		try {
+			registry.extend(failing);
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("broken", e.getMessage());
+		}
+		assertFalse(registry.containsService("plugin"));
+		assertFalse(registry.containsService("pluginName"));
+		assertEquals(Collections.singletonMap("greeting", "hello"), registry.getServices(CharSequence.class));
+		
+		final CompletableFuture<Runnable> plugin = new CompletableFuture<>();
+		registry.extend(new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bindAsync(Runnable.class, new AsyncServiceBuilder<Runnable>() {
+					@Override
+					public CompletionStage<Runnable> build(ServiceBuilderContext context) {
+						return plugin;
+					}
+				}).withServiceId("plugin").eagerLoad();
+			}
+		});
+		CompletableFuture<Void> ready = registry.ready().toCompletableFuture();
+		CompletableFuture<Void> readiness = registry.readiness().toCompletableFuture();
+		assertFalse(ready.isDone());
+		assertFalse(readiness.isDone());
+		plugin.complete(new Thread());
+		assertTrue(ready.isDone());
+		assertTrue(readiness.isDone());
+	}
+	
+	@Test
+	public void testConditionalBindings() {
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(String.class, "on").withServiceId("enabled").when(Conditions.onProperty("profile", "full", false));
+				binder.bind(String.class, "slim").withServiceId("slim").when(Conditions.onProperty("profile", "slim", true));
+				binder.bind(Runnable.class, new Thread()).withServiceId("fallback").when(Conditions.onMissingService(Runnable.class));
+				binder.decorate(String.class, "d1", new StringDecorator("[%s]")).withServiceId("enabled");
+				binder.override(String.class, "off").withServiceId("enabled");
+			}
+		};
+		ServiceRegistry slim = buildRegistry(module);
+		assertFalse(slim.containsService("enabled"));
+		assertEquals("slim", slim.getService("slim"));
+		assertTrue(slim.containsService("fallback"));
+		
+		ServiceModule runnable = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Runnable.class, new Thread()).withServiceId("runnable");
+			}
+		};
+		ServiceRegistry full = new ServiceRegistryBuilder().withModules(module, runnable)
+				.withProperties(Collections.singletonMap("profile", "full")).build();
+		assertEquals("[off]", full.getService("enabled"));
+		assertFalse(full.containsService("slim"));
+		assertFalse(full.containsService("fallback"));
+		assertEquals("runnable", full.getServices(Runnable.class).keySet().iterator().next());
+	}
+	
+	public static class DiscoveredModule implements ServiceModule {
+		@Override
+		public void bind(ServiceBinder binder) {
+			binder.bind(String.class, "discovered").withServiceId("discovered");
+		}
+	}
+	
+	@Test
+	public void testDiscoveredModules() throws Exception {
+		File classes = Files.createTempDirectory("tiny-ioc").toFile();
+		File index = new File(classes, ModuleDiscovery.MODULE_INDEX);
+		index.getParentFile().mkdirs();
+		String moduleNames = "# generated\n" + DiscoveredModule.class.getName() + "\n" + GraphModule.class.getName() + "\n";
+		Files.write(index.toPath(), moduleNames.getBytes(StandardCharsets.UTF_8));
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toURI().toURL() }, getClass().getClassLoader())) {
+			assertEquals(Arrays.asList(DiscoveredModule.class.getName(), GraphModule.class.getName()), ModuleDiscovery.readModuleNames(classLoader));
+			ServiceRegistry registry = new ServiceRegistryBuilder().withDiscoveredModules(classLoader, sameThreadExecutor()).build();
+			assertEquals("discovered", registry.getService("discovered"));
+			assertTrue(registry.containsService("holder"));
+			
+			Files.write(index.toPath(), "com.example.Missing\n".getBytes(StandardCharsets.UTF_8));
+			try {
+				new ServiceRegistryBuilder().withDiscoveredModules(classLoader);
+				fail();
+			} catch (IocException e) {
+				assertEquals("Error loading discovered module com.example.Missing", e.getMessage());
+			}
+		}
+	}
+	
+	private static Executor sameThreadExecutor() {
+		return new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		};
+	}
 }
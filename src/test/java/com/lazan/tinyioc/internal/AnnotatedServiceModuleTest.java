@@ -1,11 +1,15 @@
 package com.lazan.tinyioc.internal;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.sql.Date;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -27,6 +31,8 @@ import com.lazan.tinyioc.ServiceRegistryBuilder;
 import com.lazan.tinyioc.UnorderedConfiguration;
 import com.lazan.tinyioc.annotations.Autobuild;
 import com.lazan.tinyioc.annotations.Bind;
+import com.lazan.tinyioc.annotations.ConditionalOnMissingService;
+import com.lazan.tinyioc.annotations.ConditionalOnProperty;
 import com.lazan.tinyioc.annotations.Contribute;
 import com.lazan.tinyioc.annotations.Decorate;
 import com.lazan.tinyioc.annotations.Service;
@@ -348,6 +354,103 @@ public class AnnotatedServiceModuleTest {
 		}
 	}
 	
+	public static class StaticModule {
+		@Service(serviceId="foo")
+		public static String foo(@Named("bar") String bar) {
+			return bar + "foo";
+		}
+		@Service(serviceId="bar")
+		public static String bar() {
+			return "bar";
+		}
+		@Service(serviceId="fail")
+		public static String fail() {
+			throw new IllegalStateException("fail");
+		}
+	}
+	
+	@Test
+	public void testStaticMethods() {
+		ServiceRegistry registry = buildRegistry(StaticModule.class);
+		assertEquals("barfoo", registry.getService("foo"));
+		try {
+			registry.getService("fail");
+			fail();
+		} catch (IocException e) {
+			assertEquals("Error building 'fail'", e.getMessage());
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+	
+	public static class NamedAutobuildModule {
+		@Service(serviceId="foo")
+		public String foo(@Named("bar") @Autobuild AutobuildMe bar) {
+			return "foo";
+		}
+	}
+	
+	@Test
+	public void testNamedAutobuild() {
+		try {
+			buildRegistry(NamedAutobuildModule.class);
+			fail();
+		} catch (IocException e) {
+			assertEquals("Found @Named and Autobuild on argument 0 of NamedAutobuildModule.foo", e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testModuleMethodsCached() {
+		assertSame(AnnotatedServiceModule.getModuleMethods(StaticModule.class), AnnotatedServiceModule.getModuleMethods(StaticModule.class));
+		assertEquals(3, AnnotatedServiceModule.getModuleMethods(StaticModule.class).size());
+		ServiceRegistry registry1 = buildRegistry(StaticModule.class);
+		ServiceRegistry registry2 = buildRegistry(StaticModule.class);
+		assertEquals("barfoo", registry1.getService("foo"));
+		assertEquals("barfoo", registry2.getService("foo"));
+		for (int i = 0; i < 2; ++i) {
+			try {
+				buildRegistry(NamedAutobuildModule.class);
+				fail();
+			} catch (IocException e) {
+				assertEquals("Found @Named and Autobuild on argument 0 of NamedAutobuildModule.foo", e.getMessage());
+			}
+		}
+	}
+	
+	public static class ConditionalModule {
+		@Service(serviceId="defaultName") @ConditionalOnMissingService(CharSequence.class)
+		public static String defaultName() {
+			return "default";
+		}
+		@Service(serviceId="featureName") @ConditionalOnProperty(name="test.feature")
+		public static String featureName() {
+			return "feature";
+		}
+		@Decorate(decoratorId="shout", serviceId="featureName")
+		public static String shout(String delegate) {
+			return delegate.toUpperCase();
+		}
+	}
+	
+	public static class CustomNameModule {
+		@Service
+		public static StringBuilder customName() {
+			return new StringBuilder("custom");
+		}
+	}
+	
+	@Test
+	public void testConditionalAnnotations() {
+		ServiceRegistry registry = buildRegistry(ConditionalModule.class);
+		assertEquals("default", registry.getService("defaultName"));
+		assertFalse(registry.containsService("featureName"));
+		
+		registry = new ServiceRegistryBuilder().withModuleTypes(ConditionalModule.class, CustomNameModule.class)
+				.withProperties(Collections.singletonMap("test.feature", "true")).build();
+		assertFalse(registry.containsService("defaultName"));
+		assertEquals("FEATURE", registry.getService("featureName"));
+	}
+	
 	private ServiceRegistry buildRegistry(Class<?>... moduleTypes) {
 		return new ServiceRegistryBuilder().withModuleTypes(moduleTypes).build();
 	}
@@ -2,6 +2,8 @@ package com.lazan.tinyioc.internal;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.when;
 
@@ -145,6 +147,33 @@ public class AutobuilderImplTest {
 		assertEquals("hello", values.string1);
 	}
 	
+	public static class FailingConstructor {
+		public FailingConstructor() {
+			throw new IllegalStateException("failed");
+		}
+	}
+
+	@Test
+	public void testConstructorException() {
+		try {
+			build(FailingConstructor.class);
+			fail();
+		} catch (IocException e) {
+			assertEquals("Error building serviceId 'testService'", e.getMessage());
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void testInjectionPlanCached() {
+		InjectionPlan<InjectFields> plan = InjectionPlan.forType(InjectFields.class);
+		assertSame(plan, InjectionPlan.forType(InjectFields.class));
+		assertEquals(1, plan.getParameters().size());
+		assertEquals(3, plan.getFields().size());
+		assertEquals("date1", plan.getFields().get(0).getName());
+		assertNull(plan.getFields().get(2).getName());
+	}
+	
 	private <T> T build(Class<T> type) {
 		ServiceBuilderContext context = new ServiceBuilderContextImpl(registry, "testService", type);
 		return new AutobuilderImpl().autobuild(context, type);
@@ -0,0 +1,243 @@
+package com.lazan.tinyioc.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.lazan.tinyioc.IocException;
+import com.lazan.tinyioc.ServiceBinder;
+import com.lazan.tinyioc.ServiceBuilder;
+import com.lazan.tinyioc.ServiceBuilderContext;
+import com.lazan.tinyioc.ServiceModule;
+import com.lazan.tinyioc.ServiceRegistry;
+import com.lazan.tinyioc.ServiceRegistryBuilder;
+
+public class ServiceReferenceTest {
+	private static final int SERVICE_COUNT = 50;
+	private static final int TASK_COUNT = 5000;
+	
+	public static class Instance {}
+	
+	@Test
+	public void testConcurrentRealization() throws Exception {
+		final AtomicInteger buildCount = new AtomicInteger();
+		final AtomicInteger failures = new AtomicInteger();
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				for (int i = 0; i < SERVICE_COUNT; ++i) {
+					final int index = i;
+					binder.bind(Instance.class, new ServiceBuilder<Instance>() {
+						@Override
+						public Instance build(ServiceBuilderContext context) {
+							try {
+								Thread.sleep(1);
+							} catch (InterruptedException e) {
+								throw new IllegalStateException(e);
+							}
+							if (index % 5 == 0 && failures.incrementAndGet() <= SERVICE_COUNT / 5) {
+								throw new IllegalStateException("fail " + index);
+							}
+							if (index > 0) {
+								context.getServiceRegistry().getService("service" + (index - 1));
+							}
+							buildCount.incrementAndGet();
+							return new Instance();
+						}
+					}).withServiceId("service" + i);
+				}
+			}
+		};
+		final ServiceRegistry registry = new ServiceRegistryBuilder().withModule(module).build();
+		ExecutorService executor = newVirtualThreadExecutor();
+		try {
+			List<Future<Object>> futures = new ArrayList<>(TASK_COUNT);
+			for (int i = 0; i < TASK_COUNT; ++i) {
+				final String serviceId = "service" + (SERVICE_COUNT - 1 - (i % SERVICE_COUNT));
+				futures.add(executor.submit(new Callable<Object>() {
+					@Override
+					public Object call() throws Exception {
+						while (true) {
+							try {
+								return registry.getService(serviceId);
+							} catch (RuntimeException e) {
+							}
+						}
+					}
+				}));
+			}
+			for (int i = 0; i < TASK_COUNT; ++i) {
+				String serviceId = "service" + (SERVICE_COUNT - 1 - (i % SERVICE_COUNT));
+				assertSame(registry.getService(serviceId), futures.get(i).get(30, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		}
+		assertEquals(SERVICE_COUNT, buildCount.get());
+	}
+	
+	@Test
+	public void testCrossThreadDeadlock() throws Exception {
+		final CountDownLatch aStarted = new CountDownLatch(1);
+		final CountDownLatch bStarted = new CountDownLatch(1);
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(Instance.class, new ServiceBuilder<Instance>() {
+					@Override
+					public Instance build(ServiceBuilderContext context) {
+						aStarted.countDown();
+						awaitLatch(bStarted);
+						context.getServiceRegistry().getService("b");
+						return new Instance();
+					}
+				}).withServiceId("a");
+				binder.bind(Instance.class, new ServiceBuilder<Instance>() {
+					@Override
+					public Instance build(ServiceBuilderContext context) {
+						bStarted.countDown();
+						awaitLatch(aStarted);
+						context.getServiceRegistry().getService("a");
+						return new Instance();
+					}
+				}).withServiceId("b");
+			}
+		};
+		final ServiceRegistry registry = new ServiceRegistryBuilder().withModule(module).build();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<Future<Object>> futures = new ArrayList<>();
+			for (final String serviceId : new String[] { "a", "b" }) {
+				futures.add(executor.submit(new Callable<Object>() {
+					@Override
+					public Object call() {
+						return registry.getService(serviceId);
+					}
+				}));
+			}
+			List<String> messages = new ArrayList<>();
+			for (Future<Object> future : futures) {
+				try {
+					future.get(10, TimeUnit.SECONDS);
+					fail();
+				} catch (ExecutionException e) {
+					messages.add(e.getCause().getMessage());
+				}
+			}
+			// one thread detects the cross-thread cycle, the other then finds the cycle on its own stack (or both detect it at once)
+			Collections.sort(messages);
+			assertTrue(messages.get(0), messages.get(0).matches("Circular dependency across threads detected, thread '.*' \\[(a, b|b, a)\\] and thread '.*' \\[(b, a|a, b)\\]"));
+			assertTrue(messages.get(1), messages.get(1).matches("Circular dependency (reference detected \\[(a, b, a|b, a, b)\\]|across threads detected.*)"));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void testParallelEagerLoad() throws Exception {
+		// "a" and "b" can only pass the barrier when built at the same time
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		final List<String> built = Collections.synchronizedList(new ArrayList<String>());
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				for (final String serviceId : new String[] { "a", "b" }) {
+					binder.bind(Instance.class, new ServiceBuilder<Instance>() {
+						@Override
+						public Instance build(ServiceBuilderContext context) {
+							try {
+								barrier.await(10, TimeUnit.SECONDS);
+							} catch (Exception e) {
+								throw new IllegalStateException(e);
+							}
+							built.add(serviceId);
+							return new Instance();
+						}
+					}).withServiceId(serviceId).eagerLoad();
+				}
+				binder.bind(Instance.class, new ServiceBuilder<Instance>() {
+					@Override
+					public Instance build(ServiceBuilderContext context) {
+						context.getServiceRegistry().getService("a");
+						context.getServiceRegistry().getService("b");
+						built.add("c");
+						return new Instance();
+					}
+				}).withServiceId("c").eagerLoad();
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			new ServiceRegistryBuilder().withModule(module).withParallelEagerLoad(executor).build();
+			assertEquals(3, built.size());
+			assertEquals("c", built.get(2));
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testParallelEagerLoadFailures() throws Exception {
+		ServiceModule module = new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				for (final String serviceId : new String[] { "a", "b", "c" }) {
+					binder.bind(Instance.class, new ServiceBuilder<Instance>() {
+						@Override
+						public Instance build(ServiceBuilderContext context) {
+							if (!"b".equals(serviceId)) {
+								throw new IllegalStateException("fail " + serviceId);
+							}
+							return new Instance();
+						}
+					}).withServiceId(serviceId).eagerLoad();
+				}
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			new ServiceRegistryBuilder().withModule(module).withParallelEagerLoad(executor).build();
+			fail();
+		} catch (IocException e) {
+			assertEquals("Error eager loading serviceIds [a, c]", e.getMessage());
+			assertEquals(2, e.getSuppressed().length);
+			assertEquals("fail a", e.getSuppressed()[0].getMessage());
+			assertEquals("fail c", e.getSuppressed()[1].getMessage());
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	private static void awaitLatch(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(200);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.lazan.tinyioc.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.lazan.tinyioc.ServiceBinder;
+import com.lazan.tinyioc.ServiceModule;
+import com.lazan.tinyioc.ServiceRegistryBuilder;
+
+public class ServiceTypeIndexTest {
+	public static class Unbound {}
+	
+	@Test
+	public void testMissesDontPinClasses() throws Exception {
+		ServiceRegistryImpl registry = (ServiceRegistryImpl) new ServiceRegistryBuilder().withModule(new ServiceModule() {
+			@Override
+			public void bind(ServiceBinder binder) {
+				binder.bind(String.class, "value").withServiceId("value");
+			}
+		}).build();
+		assertSame(Collections.emptyList(), registry.findCandidates(Unbound.class));
+		assertEquals(1, registry.findCandidates(Comparable.class).size());
+		
+		URL classes = Unbound.class.getProtectionDomain().getCodeSource().getLocation();
+		URLClassLoader classLoader = new URLClassLoader(new URL[] { classes }, null);
+		Class<?> unbound = classLoader.loadClass(Unbound.class.getName());
+		assertTrue(unbound != Unbound.class);
+		assertTrue(registry.findCandidates(unbound).isEmpty());
+		assertTrue(registry.findCandidates(unbound).isEmpty());
+		
+		WeakReference<Class<?>> unboundRef = new WeakReference<Class<?>>(unbound);
+		unbound = null;
+		classLoader.close();
+		classLoader = null;
+		for (int i = 0; i < 50 && unboundRef.get() != null; ++i) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(unboundRef.get());
+		// the expired miss is dropped on the next one
+		assertTrue(registry.findCandidates(Thread.class).isEmpty());
+	}
+}
@@ -0,0 +1,59 @@
+package com.lazan.tinyioc.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ThreadPerTaskExecutorTest {
+	@Test
+	public void testFlood() throws Exception {
+		final AtomicInteger threadCount = new AtomicInteger();
+		ThreadFactory threadFactory = new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				threadCount.incrementAndGet();
+				return Executors.defaultThreadFactory().newThread(runnable);
+			}
+		};
+		ThreadPerTaskExecutor executor = new ThreadPerTaskExecutor(threadFactory, 2, 100);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger completed = new AtomicInteger();
+		Runnable blocker = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				completed.incrementAndGet();
+			}
+		};
+		int rejected = 0;
+		for (int i = 0; i < 10000; ++i) {
+			try {
+				executor.execute(blocker);
+			} catch (RejectedExecutionException e) {
+				rejected++;
+			}
+		}
+		assertEquals(2, threadCount.get());
+		assertEquals(100, executor.getQueueDepth());
+		assertEquals(10000 - 102, rejected);
+
+		release.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(102, completed.get());
+		assertEquals(102, threadCount.get());
+		assertEquals(0, executor.getActiveCount());
+	}
+}
@@ -0,0 +1,113 @@
+package com.lazan.tinyioc.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import com.lazan.tinyioc.internal.GeneratedTypes;
+
+class FactoryWriter {
+	private static final String IOC = "com.lazan.tinyioc.";
+
+	private final ProcessingEnvironment env;
+	private final TypeNames typeNames;
+	private final TypeElement type;
+
+	FactoryWriter(ProcessingEnvironment env, TypeNames typeNames, TypeElement type) {
+		this.env = env;
+		this.typeNames = typeNames;
+		this.type = type;
+	}
+
+	void write() {
+		if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+			return;
+		}
+		String error = typeNames.findConstructorError(type);
+		if (error != null) {
+			env.getMessager().printMessage(Diagnostic.Kind.ERROR, error, type);
+			return;
+		}
+		// no factory, autobuild falls back to reflection
+		if (!typeNames.isAccessible(type)) {
+			return;
+		}
+		ExecutableElement constructor = typeNames.findConstructor(type);
+		String typeName = typeNames.qualifiedName(type);
+		String generatedName = typeNames.generatedName(type, GeneratedTypes.FACTORY_SUFFIX);
+		String packageName = typeNames.packageName(type);
+		String simpleName = packageName.isEmpty() ? generatedName : generatedName.substring(packageName.length() + 1);
+
+		StringBuilder source = new StringBuilder();
+		if (!packageName.isEmpty()) {
+			source.append("package ").append(packageName).append(";\n\n");
+		}
+		source.append("// Generated by tiny-ioc-processor from ").append(typeName).append("\n");
+		source.append("@SuppressWarnings({ \"rawtypes\", \"unchecked\" })\n");
+		source.append("public final class ").append(simpleName).append(" implements ").append(IOC)
+				.append("AutobuildFactory<").append(typeName).append("> {\n");
+		source.append("\t@Override\n");
+		source.append("\tpublic ").append(typeName).append(" create(").append(IOC).append("ServiceRegistry registry, ")
+				.append(IOC).append("ServiceBuilderContext context) {\n");
+		List<? extends VariableElement> params = constructor.getParameters();
+		StringBuilder args = new StringBuilder();
+		for (int i = 0; i < params.size(); ++i) {
+			VariableElement param = params.get(i);
+			source.append("\t\tObject arg").append(i).append(" = ").append(valueExpression(param)).append(";\n");
+			if (i > 0) {
+				args.append(", ");
+			}
+			args.append("(").append(typeNames.typeName(param.asType())).append(") arg").append(i);
+		}
+		boolean checked = !constructor.getThrownTypes().isEmpty();
+		String indent = checked ? "\t\t\t" : "\t\t";
+		if (checked) {
+			source.append("\t\ttry {\n");
+		}
+		source.append(indent).append("return new ").append(typeName).append("(").append(args).append(");\n");
+		if (checked) {
+			source.append("\t\t} catch (RuntimeException e) {\n");
+			source.append("\t\t\tthrow e;\n");
+			source.append("\t\t} catch (Exception e) {\n");
+			source.append("\t\t\tthrow new java.lang.reflect.UndeclaredThrowableException(e);\n");
+			source.append("\t\t}\n");
+		}
+		source.append("\t}\n");
+		source.append("}\n");
+		try {
+			JavaFileObject file = env.getFiler().createSourceFile(generatedName, type);
+			try (Writer writer = file.openWriter()) {
+				writer.write(source.toString());
+			}
+		} catch (IOException e) {
+			env.getMessager().printMessage(Diagnostic.Kind.ERROR, "Error writing " + generatedName + ": " + e.getMessage(), type);
+		}
+	}
+
+	protected String valueExpression(VariableElement param) {
+		TypeMirror paramType = param.asType();
+		String typeName = typeNames.typeName(paramType);
+		String named = typeNames.findAnnotationValue(param, ServiceModuleProcessor.NAMED);
+		String lookup = String.format("registry.getService(%s.class)", typeName);
+		if (named != null) {
+			return String.format("registry.getService(%s, %s.class)", TypeNames.literal(named), typeName);
+		} else if (typeNames.isType(paramType, "java.util.Map")) {
+			return "context != null ? context.getMappedContributions() : " + lookup;
+		} else if (typeNames.isType(paramType, "java.util.List")) {
+			return "context != null ? context.getOrderedContributions() : " + lookup;
+		} else if (typeNames.isType(paramType, "java.util.Collection")) {
+			return "context != null ? context.getUnorderedContributions() : " + lookup;
+		}
+		return lookup;
+	}
+}
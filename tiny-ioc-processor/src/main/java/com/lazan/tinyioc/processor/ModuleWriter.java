@@ -0,0 +1,408 @@
+package com.lazan.tinyioc.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import com.lazan.tinyioc.MappedConfiguration;
+import com.lazan.tinyioc.OrderedConfiguration;
+import com.lazan.tinyioc.ServiceBinder;
+import com.lazan.tinyioc.UnorderedConfiguration;
+import com.lazan.tinyioc.annotations.Autobuild;
+import com.lazan.tinyioc.annotations.Bind;
+import com.lazan.tinyioc.annotations.ConditionalOnMissingService;
+import com.lazan.tinyioc.annotations.ConditionalOnProperty;
+import com.lazan.tinyioc.annotations.Contribute;
+import com.lazan.tinyioc.annotations.Decorate;
+import com.lazan.tinyioc.annotations.Service;
+import com.lazan.tinyioc.annotations.ServiceOverride;
+import com.lazan.tinyioc.internal.GeneratedTypes;
+
+class ModuleWriter {
+	private static final String IOC = "com.lazan.tinyioc.";
+	private static final String CONFIGURATION_TYPES[] = {
+			OrderedConfiguration.class.getName(), UnorderedConfiguration.class.getName(), MappedConfiguration.class.getName() };
+	private static final String CONTRIBUTOR_TYPES[] = {
+			IOC + "OrderedContributor", IOC + "UnorderedContributor", IOC + "MappedContributor" };
+
+	private static enum ParameterSource { SERVICE, DECORATOR, CONTRIBUTOR }
+
+	private final ProcessingEnvironment env;
+	private final TypeNames typeNames;
+	private final TypeElement moduleType;
+	private boolean failed;
+
+	ModuleWriter(ProcessingEnvironment env, TypeNames typeNames, TypeElement moduleType) {
+		this.env = env;
+		this.typeNames = typeNames;
+		this.moduleType = moduleType;
+	}
+
+	void write() {
+		if (!typeNames.isAccessible(moduleType)) {
+			return;
+		}
+		List<ExecutableElement> methods = new ArrayList<>();
+		List<Class<?>> handlers = new ArrayList<>();
+		boolean needsInstance = false;
+		for (ExecutableElement method : ElementFilter.methodsIn(env.getElementUtils().getAllMembers(moduleType))) {
+			Class<?> handler = method.getModifiers().contains(Modifier.PUBLIC) ? findHandlerAnnotation(method) : null;
+			if (handler != null) {
+				methods.add(method);
+				handlers.add(handler);
+				needsInstance |= !method.getModifiers().contains(Modifier.STATIC);
+			}
+		}
+		if (needsInstance && !isInstantiable()) {
+			error(moduleType, "Module type %s requires a public no-arg constructor", typeNames.qualifiedName(moduleType));
+		}
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < methods.size(); ++i) {
+			writeMethod(body, methods.get(i), handlers.get(i));
+		}
+		if (failed) {
+			return;
+		}
+		String generatedName = typeNames.generatedName(moduleType, GeneratedTypes.MODULE_SUFFIX);
+		String packageName = typeNames.packageName(moduleType);
+		String simpleName = packageName.isEmpty() ? generatedName : generatedName.substring(packageName.length() + 1);
+		String moduleName = typeNames.qualifiedName(moduleType);
+		StringBuilder source = new StringBuilder();
+		if (!packageName.isEmpty()) {
+			source.append("package ").append(packageName).append(";\n\n");
+		}
+		source.append("// Generated by tiny-ioc-processor from ").append(moduleName).append("\n");
+		source.append("@SuppressWarnings({ \"rawtypes\", \"unchecked\" })\n");
+		source.append("public final class ").append(simpleName).append(" implements ").append(IOC).append("ServiceModule {\n");
+		source.append("\t@Override\n");
+		source.append("\tpublic void bind(final ").append(IOC).append("ServiceBinder binder) {\n");
+		if (needsInstance) {
+			source.append("\t\tfinal ").append(moduleName).append(" module;\n");
+			source.append("\t\ttry {\n");
+			source.append("\t\t\tmodule = new ").append(moduleName).append("();\n");
+			source.append("\t\t} catch (Exception e) {\n");
+			source.append("\t\t\tthrow new ").append(IOC).append("IocException(e, \"Error instantiating %s\", ")
+					.append(TypeNames.literal(typeNames.simpleName(moduleType))).append(");\n");
+			source.append("\t\t}\n");
+		}
+		source.append(body);
+		source.append("\t}\n\n");
+		writeHelpers(source);
+		source.append("}\n");
+		try {
+			JavaFileObject file = env.getFiler().createSourceFile(generatedName, moduleType);
+			try (Writer writer = file.openWriter()) {
+				writer.write(source.toString());
+			}
+		} catch (IOException e) {
+			error(moduleType, "Error writing %s: %s", generatedName, e.getMessage());
+		}
+	}
+
+	protected boolean isInstantiable() {
+		if (moduleType.getModifiers().contains(Modifier.ABSTRACT)) {
+			return false;
+		}
+		if (moduleType.getNestingKind() != NestingKind.TOP_LEVEL && !moduleType.getModifiers().contains(Modifier.STATIC)) {
+			return false;
+		}
+		for (ExecutableElement constructor : typeNames.publicConstructors(moduleType)) {
+			if (constructor.getParameters().isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	protected Class<?> findHandlerAnnotation(ExecutableElement method) {
+		Class<?> found = null;
+		for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+			String annotationName = typeNames.typeName(mirror.getAnnotationType());
+			for (Class<?> type : new Class<?>[] { Bind.class, Service.class, ServiceOverride.class, Decorate.class, Contribute.class }) {
+				if (type.getName().equals(annotationName)) {
+					if (found != null) {
+						error(method, "Found %s and %s on %s.%s", found, type, typeNames.binaryName(moduleType), method.getSimpleName());
+					}
+					found = type;
+				}
+			}
+		}
+		return found;
+	}
+
+	protected void writeMethod(StringBuilder out, ExecutableElement method, Class<?> handler) {
+		if (handler == Bind.class) {
+			writeBind(out, method);
+		} else if (handler == Service.class) {
+			Service service = method.getAnnotation(Service.class);
+			writeService(out, method, "bindService", service.serviceId(), service.eagerLoad());
+		} else if (handler == ServiceOverride.class) {
+			ServiceOverride override = method.getAnnotation(ServiceOverride.class);
+			writeService(out, method, "overrideService", override.value(), override.eagerLoad());
+		} else if (handler == Decorate.class) {
+			writeDecorate(out, method, method.getAnnotation(Decorate.class));
+		} else {
+			writeContribute(out, method, method.getAnnotation(Contribute.class));
+		}
+	}
+
+	protected void writeBind(StringBuilder out, ExecutableElement method) {
+		List<? extends VariableElement> params = method.getParameters();
+		if (params.size() != 1 || !typeNames.isType(params.get(0).asType(), ServiceBinder.class.getName())) {
+			error(method, "Incompatible parameter types for @Bind method %s.%s, expected single ServiceBinder parameter",
+					typeNames.qualifiedName(method.getEnclosingElement()), method.getSimpleName());
+			return;
+		}
+		out.append("\t\ttry {\n");
+		out.append("\t\t\t").append(target(method)).append("(binder);\n");
+		out.append("\t\t} catch (Exception e) {\n");
+		out.append("\t\t\tthrow new ").append(IOC).append("IocException(e, \"Error invoking %s.%s\", ")
+				.append(TypeNames.literal(typeNames.binaryName(method.getEnclosingElement()))).append(", ")
+				.append(TypeNames.literal(method.getSimpleName().toString())).append(");\n");
+		out.append("\t\t}\n");
+	}
+
+	protected void writeService(StringBuilder out, ExecutableElement method, String bindMethod, String serviceId, boolean eagerLoad) {
+		TypeMirror returnType = method.getReturnType();
+		if (returnType.getKind() == TypeKind.VOID) {
+			error(method, "Service method %s.%s must not return void", typeNames.qualifiedName(method.getEnclosingElement()), method.getSimpleName());
+			return;
+		}
+		String boxedType = typeNames.boxedTypeName(returnType);
+		out.append("\t\t{\n");
+		out.append("\t\t\t").append(IOC).append("ServiceBuilder<").append(boxedType).append("> builder = new ")
+				.append(IOC).append("ServiceBuilder<").append(boxedType).append(">() {\n");
+		out.append("\t\t\t\t@Override\n");
+		out.append("\t\t\t\tpublic ").append(boxedType).append(" build(").append(IOC).append("ServiceBuilderContext context) {\n");
+		writeInvocation(out, method, ParameterSource.SERVICE, null, true);
+		out.append("\t\t\t\t}\n");
+		out.append("\t\t\t};\n");
+		out.append("\t\t\t").append(IOC).append("ServiceBinderOptions options = ").append(bindMethod)
+				.append("(binder, ").append(typeNames.typeName(returnType)).append(".class, builder);\n");
+		if (!serviceId.isEmpty()) {
+			out.append("\t\t\toptions.withServiceId(").append(TypeNames.literal(serviceId)).append(");\n");
+		}
+		if (eagerLoad) {
+			out.append("\t\t\toptions.eagerLoad();\n");
+		}
+		writeConditions(out, method);
+		out.append("\t\t}\n");
+	}
+
+	protected void writeConditions(StringBuilder out, ExecutableElement method) {
+		ConditionalOnProperty onProperty = method.getAnnotation(ConditionalOnProperty.class);
+		if (onProperty != null) {
+			out.append("\t\t\toptions.when(").append(IOC).append("Conditions.onProperty(").append(TypeNames.literal(onProperty.name())).append(", ")
+					.append(TypeNames.literal(onProperty.havingValue())).append(", ").append(onProperty.matchIfMissing()).append("));\n");
+		}
+		ConditionalOnMissingService onMissing = method.getAnnotation(ConditionalOnMissingService.class);
+		if (onMissing != null) {
+			TypeMirror serviceType = null;
+			try {
+				onMissing.value();
+			} catch (MirroredTypeException e) {
+				serviceType = e.getTypeMirror().getKind() == TypeKind.VOID ? null : e.getTypeMirror();
+			}
+			if (!onMissing.serviceId().isEmpty() && serviceType != null) {
+				error(method, "Error with %s.%s. Expected at most one of serviceId and value on @ConditionalOnMissingService", 
+						typeNames.simpleName(method.getEnclosingElement()), method.getSimpleName());
+				return;
+			}
+			String target;
+			if (!onMissing.serviceId().isEmpty()) {
+				target = TypeNames.literal(onMissing.serviceId());
+			} else {
+				target = typeNames.typeName(serviceType != null ? serviceType : method.getReturnType()) + ".class";
+			}
+			out.append("\t\t\toptions.when(").append(IOC).append("Conditions.onMissingService(").append(target).append("));\n");
+		}
+	}
+
+	protected void writeDecorate(StringBuilder out, ExecutableElement method, Decorate decorate) {
+		TypeMirror returnType = method.getReturnType();
+		if (returnType.getKind() == TypeKind.VOID) {
+			error(method, "Decorator method %s.%s must not return void", typeNames.qualifiedName(method.getEnclosingElement()), method.getSimpleName());
+			return;
+		}
+		String boxedType = typeNames.boxedTypeName(returnType);
+		out.append("\t\t{\n");
+		out.append("\t\t\t").append(IOC).append("ServiceDecorator<").append(boxedType).append("> decorator = new ")
+				.append(IOC).append("ServiceDecorator<").append(boxedType).append(">() {\n");
+		out.append("\t\t\t\t@Override\n");
+		out.append("\t\t\t\tpublic ").append(boxedType).append(" decorate(").append(IOC).append("ServiceBuilderContext context, ")
+				.append(boxedType).append(" delegate) {\n");
+		writeInvocation(out, method, ParameterSource.DECORATOR, null, true);
+		out.append("\t\t\t\t}\n");
+		out.append("\t\t\t};\n");
+		out.append("\t\t\t").append(IOC).append("ServiceDecoratorOptions options = binder.decorate(")
+				.append(typeNames.typeName(returnType)).append(".class, ").append(TypeNames.literal(decorate.decoratorId())).append(", decorator);\n");
+		if (!decorate.serviceId().isEmpty()) {
+			out.append("\t\t\toptions.withServiceId(").append(TypeNames.literal(decorate.serviceId())).append(");\n");
+		}
+		if (decorate.before().length > 0) {
+			out.append("\t\t\toptions.before(").append(stringArray(decorate.before())).append(");\n");
+		}
+		if (decorate.after().length > 0) {
+			out.append("\t\t\toptions.after(").append(stringArray(decorate.after())).append(");\n");
+		}
+		out.append("\t\t}\n");
+	}
+
+	protected void writeContribute(StringBuilder out, ExecutableElement method, Contribute contribute) {
+		String methodName = typeNames.simpleName(method.getEnclosingElement()) + "." + method.getSimpleName();
+		String serviceId = contribute.serviceId().isEmpty() ? null : contribute.serviceId();
+		TypeMirror serviceType = null;
+		try {
+			contribute.serviceType();
+		} catch (MirroredTypeException e) {
+			serviceType = e.getTypeMirror().getKind() == TypeKind.VOID ? null : e.getTypeMirror();
+		}
+		int valueCount = (serviceId == null ? 0 : 1) + (serviceType == null ? 0 : 1);
+		if (valueCount != 1) {
+			error(method, "Error with %s. Expected one of serviceId and serviceType, found %s", methodName, valueCount);
+			return;
+		}
+		int configurationIndex = -1;
+		int configurationCount = 0;
+		for (VariableElement param : method.getParameters()) {
+			for (int i = 0; i < CONFIGURATION_TYPES.length; ++i) {
+				if (typeNames.isType(param.asType(), CONFIGURATION_TYPES[i])) {
+					configurationIndex = i;
+					configurationCount++;
+				}
+			}
+		}
+		if (configurationCount != 1) {
+			error(method, "Error with %s. Expected 1 parameter of the types [%s, %s, %s], found %s", methodName,
+					CONFIGURATION_TYPES[0], CONFIGURATION_TYPES[1], CONFIGURATION_TYPES[2], configurationCount);
+			return;
+		}
+		String contributorType = CONTRIBUTOR_TYPES[configurationIndex];
+		out.append("\t\t{\n");
+		out.append("\t\t\t").append(contributorType).append(" contributor = new ").append(contributorType).append("() {\n");
+		out.append("\t\t\t\t@Override\n");
+		out.append("\t\t\t\tpublic void contribute(").append(IOC).append("ServiceBuilderContext context, ")
+				.append(CONFIGURATION_TYPES[configurationIndex]).append(" configuration) {\n");
+		writeInvocation(out, method, ParameterSource.CONTRIBUTOR, CONFIGURATION_TYPES[configurationIndex], false);
+		out.append("\t\t\t\t}\n");
+		out.append("\t\t\t};\n");
+		String target = serviceId != null ? TypeNames.literal(serviceId) : typeNames.typeName(serviceType) + ".class";
+		out.append("\t\t\tbinder.contribute(").append(target).append(", contributor);\n");
+		out.append("\t\t}\n");
+	}
+
+	protected void writeInvocation(StringBuilder out, ExecutableElement method, ParameterSource source, String configurationType, boolean returnsValue) {
+		String indent = "\t\t\t\t\t";
+		String declaringName = typeNames.simpleName(method.getEnclosingElement());
+		String methodName = method.getSimpleName().toString();
+		out.append(indent).append(IOC).append("ServiceRegistry registry = context.getServiceRegistry();\n");
+		List<? extends VariableElement> params = method.getParameters();
+		StringBuilder args = new StringBuilder();
+		for (int i = 0; i < params.size(); ++i) {
+			VariableElement param = params.get(i);
+			TypeMirror paramType = param.asType();
+			String typeName = typeNames.typeName(paramType);
+			String named = typeNames.findAnnotationValue(param, ServiceModuleProcessor.NAMED);
+			boolean autobuild = typeNames.hasAnnotation(param, Autobuild.class.getName());
+			if (named != null && autobuild) {
+				error(param, "Found @Named and Autobuild on argument %s of %s.%s", i, declaringName, methodName);
+				continue;
+			}
+			String lookup = named == null
+					? String.format("service(registry, %s.class, %s, %s, %s)", typeName, i, TypeNames.literal(declaringName), TypeNames.literal(methodName))
+					: String.format("service(registry, %s, %s.class, %s, %s, %s)", TypeNames.literal(named), typeName, i, TypeNames.literal(declaringName), TypeNames.literal(methodName));
+			String value;
+			if (autobuild) {
+				value = String.format("registry.autobuild(%s.class)", typeName);
+			} else if (source == ParameterSource.SERVICE && named == null && typeNames.isType(paramType, "java.util.Map")) {
+				value = "context.getMappedContributions()";
+			} else if (source == ParameterSource.SERVICE && named == null && typeNames.isType(paramType, "java.util.List")) {
+				value = "context.getOrderedContributions()";
+			} else if (source == ParameterSource.SERVICE && named == null && typeNames.isType(paramType, "java.util.Collection")) {
+				value = "context.getUnorderedContributions()";
+			} else if (source == ParameterSource.DECORATOR && named != null) {
+				value = String.format("%s.equals(context.getServiceId()) ? delegate : %s", TypeNames.literal(named), lookup);
+			} else if (source == ParameterSource.DECORATOR) {
+				value = String.format("context.getServiceType().equals(%s.class) ? delegate : %s", typeName, lookup);
+			} else if (source == ParameterSource.CONTRIBUTOR && named == null && typeNames.isType(paramType, configurationType)) {
+				value = "configuration";
+			} else {
+				value = lookup;
+			}
+			out.append(indent).append("Object arg").append(i).append(" = ").append(value).append(";\n");
+			if (i > 0) {
+				args.append(", ");
+			}
+			args.append("(").append(typeName).append(") arg").append(i);
+		}
+		out.append(indent).append("try {\n");
+		out.append(indent).append("\t").append(returnsValue ? "return " : "").append(target(method)).append("(").append(args).append(");\n");
+		out.append(indent).append("} catch (Exception e) {\n");
+		out.append(indent).append("\tthrow new ").append(IOC).append("IocException(e, \"Error building '%s'\", context.getServiceId());\n");
+		out.append(indent).append("}\n");
+	}
+
+	protected String target(ExecutableElement method) {
+		if (method.getModifiers().contains(Modifier.STATIC)) {
+			return typeNames.qualifiedName(method.getEnclosingElement()) + "." + method.getSimpleName();
+		}
+		return "module." + method.getSimpleName();
+	}
+
+	protected void writeHelpers(StringBuilder out) {
+		out.append("\tprivate static <T> ").append(IOC).append("ServiceBinderOptions bindService(").append(IOC).append("ServiceBinder binder, Class<T> serviceType, ")
+				.append(IOC).append("ServiceBuilder<T> builder) {\n");
+		out.append("\t\treturn binder.bind(serviceType, builder);\n");
+		out.append("\t}\n\n");
+		out.append("\tprivate static <T> ").append(IOC).append("ServiceBinderOptions overrideService(").append(IOC).append("ServiceBinder binder, Class<T> serviceType, ")
+				.append(IOC).append("ServiceBuilder<T> builder) {\n");
+		out.append("\t\treturn binder.override(serviceType, builder);\n");
+		out.append("\t}\n\n");
+		out.append("\tprivate static Object service(").append(IOC).append("ServiceRegistry registry, Class<?> serviceType, int index, String typeName, String methodName) {\n");
+		out.append("\t\ttry {\n");
+		out.append("\t\t\treturn registry.getService(serviceType);\n");
+		out.append("\t\t} catch (").append(IOC).append("IocException e) {\n");
+		out.append("\t\t\tthrow new ").append(IOC).append("IocException(e, \"Error with argument %s of %s.%s\", index, typeName, methodName);\n");
+		out.append("\t\t}\n");
+		out.append("\t}\n\n");
+		out.append("\tprivate static Object service(").append(IOC).append("ServiceRegistry registry, String serviceId, Class<?> serviceType, int index, String typeName, String methodName) {\n");
+		out.append("\t\ttry {\n");
+		out.append("\t\t\treturn registry.getService(serviceId, serviceType);\n");
+		out.append("\t\t} catch (").append(IOC).append("IocException e) {\n");
+		out.append("\t\t\tthrow new ").append(IOC).append("IocException(e, \"Error with argument %s of %s.%s\", index, typeName, methodName);\n");
+		out.append("\t\t}\n");
+		out.append("\t}\n");
+	}
+
+	protected String stringArray(String[] values) {
+		StringBuilder builder = new StringBuilder("new String[] { ");
+		for (int i = 0; i < values.length; ++i) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			builder.append(TypeNames.literal(values[i]));
+		}
+		return builder.append(" }").toString();
+	}
+
+	protected void error(Element element, String template, Object... args) {
+		failed = true;
+		env.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(template, args), element);
+	}
+}
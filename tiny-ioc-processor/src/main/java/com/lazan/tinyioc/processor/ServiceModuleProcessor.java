@@ -0,0 +1,162 @@
+package com.lazan.tinyioc.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.lazan.tinyioc.annotations.Autobuild;
+import com.lazan.tinyioc.annotations.Bind;
+import com.lazan.tinyioc.annotations.Contribute;
+import com.lazan.tinyioc.annotations.Decorate;
+import com.lazan.tinyioc.annotations.DiscoverableModule;
+import com.lazan.tinyioc.annotations.Service;
+import com.lazan.tinyioc.annotations.ServiceOverride;
+import com.lazan.tinyioc.internal.ModuleDiscovery;
+
+public class ServiceModuleProcessor extends AbstractProcessor {
+	static final List<String> HANDLER_ANNOTATIONS = Arrays.asList(
+			Bind.class.getName(), Service.class.getName(), ServiceOverride.class.getName(),
+			Decorate.class.getName(), Contribute.class.getName());
+	static final String INJECT = "javax.inject.Inject";
+	static final String NAMED = "javax.inject.Named";
+	
+	private final Set<String> discoveredModules = new TreeSet<>();
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		Set<String> types = new LinkedHashSet<>(HANDLER_ANNOTATIONS);
+		types.add(INJECT);
+		types.add(Autobuild.class.getName());
+		types.add(DiscoverableModule.class.getName());
+		return types;
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		TypeNames typeNames = new TypeNames(processingEnv);
+		Set<TypeElement> moduleTypes = new LinkedHashSet<>();
+		for (String annotationName : HANDLER_ANNOTATIONS) {
+			TypeElement annotationType = processingEnv.getElementUtils().getTypeElement(annotationName);
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotationType)) {
+				moduleTypes.add((TypeElement) element.getEnclosingElement());
+			}
+		}
+		Set<TypeElement> factoryTypes = new LinkedHashSet<>();
+		TypeElement injectType = processingEnv.getElementUtils().getTypeElement(INJECT);
+		if (injectType != null) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(injectType)) {
+				if (element.getKind() == ElementKind.CONSTRUCTOR || element.getKind() == ElementKind.FIELD) {
+					factoryTypes.add((TypeElement) element.getEnclosingElement());
+				}
+			}
+		}
+		TypeElement autobuildType = processingEnv.getElementUtils().getTypeElement(Autobuild.class.getName());
+		for (Element element : roundEnv.getElementsAnnotatedWith(autobuildType)) {
+			validateAutobuildType(typeNames, element);
+		}
+		for (TypeElement moduleType : moduleTypes) {
+			new ModuleWriter(processingEnv, typeNames, moduleType).write();
+		}
+		for (TypeElement factoryType : factoryTypes) {
+			new FactoryWriter(processingEnv, typeNames, factoryType).write();
+		}
+		TypeElement discoverableType = processingEnv.getElementUtils().getTypeElement(DiscoverableModule.class.getName());
+		for (Element element : roundEnv.getElementsAnnotatedWith(discoverableType)) {
+			if (element.getKind() != ElementKind.CLASS) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "@DiscoverableModule must annotate a class", element);
+				continue;
+			}
+			discoveredModules.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+		}
+		if (roundEnv.processingOver()) {
+			writeModuleIndex();
+		}
+		return false;
+	}
+
+	// an incremental compile only sees the modules it recompiled, so the existing index is merged
+	// keeping entries whose type still exists and is still a @DiscoverableModule
+	protected void writeModuleIndex() {
+		Set<String> existingModules = readModuleIndex();
+		if (existingModules == null && discoveredModules.isEmpty()) {
+			return;
+		}
+		if (existingModules != null) {
+			for (String moduleName : existingModules) {
+				TypeElement moduleType = processingEnv.getElementUtils().getTypeElement(moduleName.replace('$', '.'));
+				if (moduleType != null && moduleType.getAnnotation(DiscoverableModule.class) != null) {
+					discoveredModules.add(moduleName);
+				}
+			}
+		}
+		try {
+			FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", ModuleDiscovery.MODULE_INDEX);
+			try (Writer out = new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8)) {
+				for (String moduleName : discoveredModules) {
+					out.write(moduleName);
+					out.write('\n');
+				}
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Error writing " + ModuleDiscovery.MODULE_INDEX + ": " + e.getMessage());
+		}
+	}
+
+	protected Set<String> readModuleIndex() {
+		Set<String> moduleNames = new TreeSet<>();
+		try {
+			FileObject index = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", ModuleDiscovery.MODULE_INDEX);
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(index.openInputStream(), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					line = line.trim();
+					if (!line.isEmpty() && !line.startsWith("#")) {
+						moduleNames.add(line);
+					}
+				}
+			}
+		} catch (IOException e) {
+			// FileNotFoundException or NoSuchFileException depending on the compiler
+			return null;
+		}
+		return moduleNames;
+	}
+
+	protected void validateAutobuildType(TypeNames typeNames, Element param) {
+		TypeMirror type = processingEnv.getTypeUtils().erasure(param.asType());
+		if (type.getKind() != TypeKind.DECLARED) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot autobuild type " + type, param);
+			return;
+		}
+		TypeElement typeElement = (TypeElement) processingEnv.getTypeUtils().asElement(type);
+		String error = typeNames.findConstructorError(typeElement);
+		if (error != null) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, error, param);
+		}
+	}
+}
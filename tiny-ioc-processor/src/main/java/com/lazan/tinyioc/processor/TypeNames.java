@@ -0,0 +1,183 @@
+package com.lazan.tinyioc.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+
+import com.lazan.tinyioc.internal.GeneratedTypes;
+
+class TypeNames {
+	private final ProcessingEnvironment env;
+
+	TypeNames(ProcessingEnvironment env) {
+		this.env = env;
+	}
+
+	String typeName(TypeMirror type) {
+		TypeMirror erasure = env.getTypeUtils().erasure(type);
+		switch (erasure.getKind()) {
+			case ARRAY:
+				return typeName(((ArrayType) erasure).getComponentType()) + "[]";
+			case DECLARED:
+				return ((TypeElement) env.getTypeUtils().asElement(erasure)).getQualifiedName().toString();
+			default:
+				return erasure.toString();
+		}
+	}
+
+	String boxedTypeName(TypeMirror type) {
+		if (type.getKind().isPrimitive()) {
+			return env.getTypeUtils().boxedClass(env.getTypeUtils().getPrimitiveType(type.getKind())).getQualifiedName().toString();
+		}
+		return typeName(type);
+	}
+
+	String qualifiedName(Element type) {
+		return ((TypeElement) type).getQualifiedName().toString();
+	}
+
+	String binaryName(Element type) {
+		return env.getElementUtils().getBinaryName((TypeElement) type).toString();
+	}
+
+	String simpleName(Element type) {
+		return type.getSimpleName().toString();
+	}
+
+	String generatedName(TypeElement type, String suffix) {
+		return GeneratedTypes.getGeneratedName(env.getElementUtils().getBinaryName(type).toString(), suffix);
+	}
+
+	String packageName(TypeElement type) {
+		return env.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+	}
+
+	boolean isType(TypeMirror type, String qualifiedName) {
+		return type.getKind() == TypeKind.DECLARED && typeName(type).equals(qualifiedName);
+	}
+
+	boolean isAccessible(TypeElement type) {
+		Element current = type;
+		while (current instanceof TypeElement) {
+			TypeElement currentType = (TypeElement) current;
+			if (currentType.getModifiers().contains(Modifier.PRIVATE)) {
+				return false;
+			}
+			NestingKind nesting = currentType.getNestingKind();
+			if (nesting == NestingKind.LOCAL || nesting == NestingKind.ANONYMOUS) {
+				return false;
+			}
+			if (nesting == NestingKind.MEMBER && !currentType.getModifiers().contains(Modifier.STATIC) && currentType.getKind() == ElementKind.CLASS) {
+				return false;
+			}
+			current = current.getEnclosingElement();
+		}
+		return true;
+	}
+
+	String findAnnotationValue(Element element, String annotationName) {
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			if (typeName(mirror.getAnnotationType()).equals(annotationName)) {
+				for (ExecutableElement key : mirror.getElementValues().keySet()) {
+					if (key.getSimpleName().contentEquals("value")) {
+						AnnotationValue value = mirror.getElementValues().get(key);
+						return String.valueOf(value.getValue());
+					}
+				}
+				return "";
+			}
+		}
+		return null;
+	}
+
+	boolean hasAnnotation(Element element, String annotationName) {
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			if (typeName(mirror.getAnnotationType()).equals(annotationName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	List<ExecutableElement> publicConstructors(TypeElement type) {
+		List<ExecutableElement> constructors = new ArrayList<>();
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if (constructor.getModifiers().contains(Modifier.PUBLIC)) {
+				constructors.add(constructor);
+			}
+		}
+		return constructors;
+	}
+
+	ExecutableElement findConstructor(TypeElement type) {
+		List<ExecutableElement> constructors = publicConstructors(type);
+		if (constructors.size() == 1) {
+			return constructors.get(0);
+		}
+		ExecutableElement selected = null;
+		for (ExecutableElement constructor : constructors) {
+			if (hasAnnotation(constructor, ServiceModuleProcessor.INJECT)) {
+				if (selected != null) {
+					return null;
+				}
+				selected = constructor;
+			}
+		}
+		return selected;
+	}
+
+	String findConstructorError(TypeElement type) {
+		String name = qualifiedName(type);
+		if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+			return "Cannot autobuild abstract type " + name;
+		}
+		List<ExecutableElement> constructors = publicConstructors(type);
+		if (constructors.isEmpty()) {
+			return "No public constructors found for type " + name;
+		}
+		if (constructors.size() == 1) {
+			return null;
+		}
+		int injectCount = 0;
+		for (ExecutableElement constructor : constructors) {
+			if (hasAnnotation(constructor, ServiceModuleProcessor.INJECT)) {
+				injectCount++;
+			}
+		}
+		if (injectCount == 0) {
+			return String.format("Found %s public constructors for type %s, please annotate one with javax.inject.Inject", constructors.size(), name);
+		}
+		if (injectCount > 1) {
+			return String.format("Found %s public constructors annotated with javax.inject.Inject for type %s", injectCount, name);
+		}
+		return null;
+	}
+
+	static String literal(String value) {
+		StringBuilder builder = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			switch (c) {
+				case '"': builder.append("\\\""); break;
+				case '\\': builder.append("\\\\"); break;
+				case '\n': builder.append("\\n"); break;
+				case '\r': builder.append("\\r"); break;
+				case '\t': builder.append("\\t"); break;
+				default: builder.append(c);
+			}
+		}
+		return builder.append('"').toString();
+	}
+}
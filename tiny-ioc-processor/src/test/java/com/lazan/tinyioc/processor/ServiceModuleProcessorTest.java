@@ -0,0 +1,291 @@
+package com.lazan.tinyioc.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.lazan.tinyioc.ServiceRegistry;
+import com.lazan.tinyioc.ServiceRegistryBuilder;
+import com.lazan.tinyioc.internal.GeneratedTypes;
+import com.lazan.tinyioc.internal.ModuleDiscovery;
+
+public class ServiceModuleProcessorTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+	
+	private final List<String> errors = new ArrayList<>();
+
+	private static final String SAMPLE_MODULE = 
+			"package sample;\n" +
+			"import java.util.List;\n" +
+			"import javax.inject.Named;\n" +
+			"import com.lazan.tinyioc.*;\n" +
+			"import com.lazan.tinyioc.annotations.*;\n" +
+			"@DiscoverableModule\n" +
+			"public class SampleModule {\n" +
+			"	@Bind\n" +
+			"	public void bind(ServiceBinder binder) {\n" +
+			"		binder.bind(Greeter.class);\n" +
+			"		binder.bind(String.class, \"hello\").withServiceId(\"greeting\");\n" +
+			"	}\n" +
+			"	@Service(serviceId=\"names\")\n" +
+			"	public static List<String> names(List<String> contributions) {\n" +
+			"		return contributions;\n" +
+			"	}\n" +
+			"	@Contribute(serviceId=\"names\")\n" +
+			"	public void contributeNames(OrderedConfiguration<String> configuration) {\n" +
+			"		configuration.add(\"a\", \"alice\");\n" +
+			"		configuration.add(\"b\", \"bob\").before(\"a\");\n" +
+			"	}\n" +
+			"	@Decorate(decoratorId=\"shout\", serviceId=\"greeting\")\n" +
+			"	public String shout(@Named(\"greeting\") String delegate) {\n" +
+			"		return delegate.toUpperCase();\n" +
+			"	}\n" +
+			"	@Service\n" +
+			"	public Integer nameCount(@Named(\"names\") List<String> names) {\n" +
+			"		return names.size();\n" +
+			"	}\n" +
+			"	@Service(serviceId=\"fallbackName\") @ConditionalOnMissingService(serviceId=\"customName\")\n" +
+			"	public static StringBuilder fallbackName() {\n" +
+			"		return new StringBuilder(\"fallback\");\n" +
+			"	}\n" +
+			"	@Service @ConditionalOnProperty(name=\"sample.feature\")\n" +
+			"	public static Boolean feature() {\n" +
+			"		return Boolean.TRUE;\n" +
+			"	}\n" +
+			"	@Service(serviceId=\"anything\")\n" +
+			"	public Object anything(@Autobuild Greeter greeter) {\n" +
+			"		return greeter;\n" +
+			"	}\n" +
+			"}\n";
+
+	private static final String GREETER = 
+			"package sample;\n" +
+			"import javax.inject.*;\n" +
+			"public class Greeter {\n" +
+			"	@Inject @Named(\"names\") java.util.List<String> names;\n" +
+			"	private final String greeting;\n" +
+			"	public Greeter() { this(\"none\"); }\n" +
+			"	@Inject public Greeter(@Named(\"greeting\") String greeting) { this.greeting = greeting; }\n" +
+			"	public String greet() { return greeting + \" \" + names; }\n" +
+			"}\n";
+	
+	private static final String AMBIGUOUS = 
+			"package sample;\n" +
+			"import javax.inject.*;\n" +
+			"public class Ambiguous {\n" +
+			"	@Inject String value;\n" +
+			"	public Ambiguous() {}\n" +
+			"	public Ambiguous(String value) {}\n" +
+			"}\n";
+
+	@Test
+	public void testGeneratedModule() throws Exception {
+		File classes = compile(SAMPLE_MODULE, GREETER);
+		assertTrue(errors.toString(), errors.isEmpty());
+		assertTrue(new File(classes, "sample/SampleModule" + GeneratedTypes.MODULE_SUFFIX + ".class").exists());
+		assertTrue(new File(classes, "sample/Greeter" + GeneratedTypes.FACTORY_SUFFIX + ".class").exists());
+		
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toURI().toURL() }, getClass().getClassLoader())) {
+			Class<?> moduleType = classLoader.loadClass("sample.SampleModule");
+			assertNotNull(GeneratedTypes.createModule(moduleType));
+
+			ServiceRegistry registry = new ServiceRegistryBuilder().withModuleType(moduleType).build();
+			assertEquals("HELLO", registry.getService("greeting"));
+			assertEquals(Arrays.asList("bob", "alice"), registry.getService("names"));
+			assertEquals(2, registry.getService(Integer.class).intValue());
+
+			Object greeter = registry.getService("greeter");
+			assertEquals("HELLO [bob, alice]", greeter.getClass().getMethod("greet").invoke(greeter));
+			Object anything = registry.getService("anything");
+			assertEquals(greeter.getClass(), anything.getClass());
+			
+			assertTrue(registry.containsService("fallbackName"));
+			assertFalse(registry.containsService(Boolean.class));
+			ServiceRegistry featureRegistry = new ServiceRegistryBuilder().withModuleType(moduleType)
+					.withProperties(Collections.singletonMap("sample.feature", "true")).build();
+			assertTrue(featureRegistry.getService(Boolean.class));
+		}
+	}
+
+	@Test
+	public void testModuleIndex() throws Exception {
+		File classes = compile(SAMPLE_MODULE, GREETER);
+		assertTrue(errors.toString(), errors.isEmpty());
+		File index = new File(classes, ModuleDiscovery.MODULE_INDEX);
+		assertEquals(Arrays.asList("sample.SampleModule"), Files.readAllLines(index.toPath(), StandardCharsets.UTF_8));
+		
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toURI().toURL() }, getClass().getClassLoader())) {
+			ExecutorService preloader = Executors.newFixedThreadPool(2);
+			try {
+				ServiceRegistry registry = new ServiceRegistryBuilder().withDiscoveredModules(classLoader, preloader).build();
+				assertEquals("HELLO", registry.getService("greeting"));
+			} finally {
+				preloader.shutdown();
+			}
+			assertEquals("HELLO", new ServiceRegistryBuilder().withDiscoveredModules(classLoader).build().getService("greeting"));
+		}
+	}
+
+	@Test
+	public void testIncrementalModuleIndex() throws Exception {
+		String other = 
+				"package sample;\n" +
+				"@com.lazan.tinyioc.annotations.DiscoverableModule\n" +
+				"public class OtherModule {}\n";
+		String third = 
+				"package sample;\n" +
+				"@com.lazan.tinyioc.annotations.DiscoverableModule\n" +
+				"public class ThirdModule {}\n";
+		File classes = compile(SAMPLE_MODULE, GREETER, other);
+		assertTrue(errors.toString(), errors.isEmpty());
+		File index = new File(classes, ModuleDiscovery.MODULE_INDEX);
+		assertEquals(Arrays.asList("sample.OtherModule", "sample.SampleModule"), Files.readAllLines(index.toPath(), StandardCharsets.UTF_8));
+		
+		assertTrue(new File(classes, "sample/OtherModule.class").delete());
+		compile(classes, third);
+		assertTrue(errors.toString(), errors.isEmpty());
+		assertEquals(Arrays.asList("sample.SampleModule", "sample.ThirdModule"), Files.readAllLines(index.toPath(), StandardCharsets.UTF_8));
+		
+		// ThirdModule recompiled without the annotation, javac only runs the processor when a supported annotation is present
+		String fourth = third.replace("ThirdModule", "FourthModule");
+		compile(classes, "package sample;\npublic class ThirdModule {}\n", fourth);
+		assertTrue(errors.toString(), errors.isEmpty());
+		assertEquals(Arrays.asList("sample.FourthModule", "sample.SampleModule"), Files.readAllLines(index.toPath(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testAmbiguousConstructor() throws Exception {
+		File classes = compile(AMBIGUOUS);
+		assertEquals(1, errors.size());
+		assertEquals("Found 2 public constructors for type sample.Ambiguous, please annotate one with javax.inject.Inject", errors.get(0));
+		assertFalse(new File(classes, "sample/Ambiguous" + GeneratedTypes.FACTORY_SUFFIX + ".class").exists());
+	}
+	
+	@Test
+	public void testMultipleInjectConstructors() throws Exception {
+		String source = 
+				"package sample;\n" +
+				"import javax.inject.*;\n" +
+				"public class MultipleInject {\n" +
+				"	@Inject public MultipleInject() {}\n" +
+				"	@Inject public MultipleInject(String value) {}\n" +
+				"}\n";
+		compile(source);
+		assertEquals(1, errors.size());
+		assertEquals("Found 2 public constructors annotated with javax.inject.Inject for type sample.MultipleInject", errors.get(0));
+	}
+	
+	@Test
+	public void testNoPublicConstructor() throws Exception {
+		String source = 
+				"package sample;\n" +
+				"import javax.inject.*;\n" +
+				"public class NoPublicConstructor {\n" +
+				"	@Inject String value;\n" +
+				"	NoPublicConstructor() {}\n" +
+				"}\n";
+		compile(source);
+		assertEquals(1, errors.size());
+		assertEquals("No public constructors found for type sample.NoPublicConstructor", errors.get(0));
+	}
+	
+	@Test
+	public void testGeneratedNames() throws Exception {
+		String outer = 
+				"package sample;\n" +
+				"import javax.inject.*;\n" +
+				"public class Outer {\n" +
+				"	public static class Inner { @Inject public Inner() {} }\n" +
+				"}\n";
+		String outerInner = 
+				"package sample;\n" +
+				"import javax.inject.*;\n" +
+				"public class Outer_Inner { @Inject public Outer_Inner() {} }\n";
+		File classes = compile(outer, outerInner);
+		assertTrue(errors.toString(), errors.isEmpty());
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toURI().toURL() }, getClass().getClassLoader())) {
+			for (String typeName : Arrays.asList("sample.Outer$Inner", "sample.Outer_Inner")) {
+				Class<?> type = classLoader.loadClass(typeName);
+				assertEquals(type, GeneratedTypes.createFactory(type).create(null, null).getClass());
+			}
+		}
+		assertEquals("sample.Outer_2Inner_TinyIocFactory", GeneratedTypes.getGeneratedName("sample.Outer$Inner", GeneratedTypes.FACTORY_SUFFIX));
+		assertEquals("sample.Outer_1Inner_TinyIocFactory", GeneratedTypes.getGeneratedName("sample.Outer_Inner", GeneratedTypes.FACTORY_SUFFIX));
+	}
+	
+	@Test
+	public void testInvalidModule() throws Exception {
+		String source = 
+				"package sample;\n" +
+				"import com.lazan.tinyioc.annotations.*;\n" +
+				"public class InvalidModule {\n" +
+				"	@Bind public void bind(String foo) {}\n" +
+				"	@Service @Decorate(decoratorId=\"d\") public String both() { return null; }\n" +
+				"	@Contribute(serviceId=\"x\", serviceType=String.class) public void contribute() {}\n" +
+				"}\n";
+		compile(source);
+		assertEquals(3, errors.size());
+		assertTrue(errors.contains("Incompatible parameter types for @Bind method sample.InvalidModule.bind, expected single ServiceBinder parameter"));
+		assertTrue(errors.contains("Found interface com.lazan.tinyioc.annotations.Service and interface com.lazan.tinyioc.annotations.Decorate on sample.InvalidModule.both"));
+		assertTrue(errors.contains("Error with InvalidModule.contribute. Expected one of serviceId and serviceType, found 2"));
+		assertFalse(new File(temp.getRoot(), "classes/sample/InvalidModule" + GeneratedTypes.MODULE_SUFFIX + ".class").exists());
+	}
+
+	private File compile(String... sources) throws IOException {
+		return compile(temp.newFolder("classes"), sources);
+	}
+	
+	private File compile(File classes, String... sources) throws IOException {
+		File sourceDir = new File(temp.newFolder(), "sample");
+		sourceDir.mkdirs();
+		List<File> files = new ArrayList<>();
+		for (String source : sources) {
+			String simpleName = source.replaceAll("(?s).*public class (\\w+).*", "$1");
+			File file = new File(sourceDir, simpleName + ".java");
+			Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+			files.add(file);
+		}
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+			List<String> options = Arrays.asList(
+					"-classpath", classes.getAbsolutePath() + File.pathSeparator + System.getProperty("java.class.path"),
+					"-d", classes.getAbsolutePath(),
+					"-processor", ServiceModuleProcessor.class.getName());
+			compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(files)).call();
+		}
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+				errors.add(diagnostic.getMessage(Locale.ENGLISH));
+			}
+		}
+		return classes;
+	}
+}